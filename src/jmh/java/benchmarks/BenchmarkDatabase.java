@@ -0,0 +1,145 @@
+package benchmarks;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import business.SeatType;
+import business.empresa.Empresa;
+import business.event.Event;
+import business.event.EventTimeFrame;
+import business.eventtype.EventType;
+import business.instalacao.Instalacao;
+import business.reservainstalacao.ReservaDeInstalacao;
+import dbutils.DataSeeder;
+
+/**
+ * An in-memory Derby database seeded with a given number of events and
+ * of reservations of a single installation.
+ */
+public class BenchmarkDatabase {
+
+	public static final String CONCERTO = "Concerto";
+	public static final String FESTIVAL = "Festival";
+	public static final String INSTALACAO = "Arena";
+	public static final String EVENT_NAME_PREFIX = "Evento ";
+	public static final long DAY = 24 * 60 * 60 * 1000L;
+	// the reservations are one day long and one day apart
+	public static final long RESERVATION_PERIOD = 2 * DAY;
+
+	private static final int CHUNK = 1000;
+
+	private final EntityManagerFactory emf;
+	private int licensedEmpresa;
+	private int unlicensedEmpresa;
+	private int instalacao;
+
+	private BenchmarkDatabase(EntityManagerFactory emf) {
+		this.emf = emf;
+	}
+
+	public static BenchmarkDatabase create(String name, int events, int reservations) {
+		BenchmarkDatabase db = new BenchmarkDatabase(createEntityManagerFactory(name));
+		db.seed(events, reservations);
+		return db;
+	}
+
+	/**
+	 * Creates a database loaded in bulk by the given seeder, for sizes that
+	 * are too large to persist through JPA.
+	 */
+	public static BenchmarkDatabase create(String name, DataSeeder seeder) throws Exception {
+		BenchmarkDatabase db = new BenchmarkDatabase(createEntityManagerFactory(name));
+		// the first entity manager creates the tables
+		db.emf.createEntityManager().close();
+		try (Connection connection = DriverManager.getConnection("jdbc:derby:memory:" + name)) {
+			seeder.seed(connection, Files.createTempDirectory(name).toFile());
+		}
+		return db;
+	}
+
+	private static EntityManagerFactory createEntityManagerFactory(String name) {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("javax.persistence.jdbc.url", "jdbc:derby:memory:" + name + ";create=true");
+		return Persistence.createEntityManagerFactory("benchmark-jpa", properties);
+	}
+
+	public EntityManagerFactory getEntityManagerFactory() {
+		return emf;
+	}
+
+	public int getLicensedEmpresa() {
+		return licensedEmpresa;
+	}
+
+	public int getUnlicensedEmpresa() {
+		return unlicensedEmpresa;
+	}
+
+	public int getInstalacao() {
+		return instalacao;
+	}
+
+	public void close() {
+		emf.close();
+	}
+
+	private void seed(int events, int reservations) {
+		EntityManager em = emf.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			EventType concerto = new EventType(CONCERTO, 50000, SeatType.SENTADO);
+			EventType festival = new EventType(FESTIVAL, 100000, SeatType.EM_PE);
+			em.persist(concerto);
+			em.persist(festival);
+			Empresa licensed = new Empresa(Arrays.asList(concerto, festival));
+			Empresa unlicensed = new Empresa(Collections.singletonList(festival));
+			em.persist(licensed);
+			em.persist(unlicensed);
+			Instalacao arena = new Instalacao(INSTALACAO, concerto);
+			em.persist(arena);
+			em.getTransaction().commit();
+			licensedEmpresa = licensed.getId();
+			unlicensedEmpresa = unlicensed.getId();
+			instalacao = arena.getId();
+
+			for (int i = 0; i < events; i += CHUNK) {
+				em.getTransaction().begin();
+				EventType type = em.getReference(EventType.class, concerto.getId());
+				Empresa empresa = em.getReference(Empresa.class, licensedEmpresa);
+				for (int j = i; j < Math.min(events, i + CHUNK); j++) {
+					Date start = new Date(j * DAY);
+					em.persist(new Event(EVENT_NAME_PREFIX + j, type,
+							Collections.singletonList(new EventTimeFrame(start, new Date(start.getTime() + DAY / 2))), empresa));
+				}
+				em.getTransaction().commit();
+				em.clear();
+			}
+			for (int i = 0; i < reservations; i += CHUNK) {
+				em.getTransaction().begin();
+				Instalacao venue = em.getReference(Instalacao.class, instalacao);
+				for (int j = i; j < Math.min(reservations, i + CHUNK); j++) {
+					Date start = new Date(j * RESERVATION_PERIOD);
+					em.persist(new ReservaDeInstalacao(venue, start, new Date(start.getTime() + DAY - 1)));
+				}
+				em.getTransaction().commit();
+				em.clear();
+			}
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
+		}
+	}
+
+}
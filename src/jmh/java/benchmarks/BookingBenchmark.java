@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.handlers.ReservaInstalacaoHandler;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Concurrent bookings of a single installation, every day asked for by two
+ * bookings, so that one of them commits and the other one finds the day
+ * taken. The commits and rejections per second are reported as secondary
+ * results. Once done, the trial fails if a day was booked twice, or if a
+ * day asked for was not booked at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class BookingBenchmark {
+
+	private static final int ATTEMPTS = 5;
+
+	/**
+	 * The bookings made by one thread in an iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bookings {
+		public long commits;
+		public long rejections;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			commits = 0;
+			rejections = 0;
+		}
+	}
+
+	private BenchmarkDatabase db;
+	private ReservaInstalacaoHandler handler;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		db = BenchmarkDatabase.create("booking", 0, 0);
+		handler = new ReservaInstalacaoHandler(db.getEntityManagerFactory(), ATTEMPTS);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try {
+			List<Object[]> twice = em.createQuery("SELECT r.inicio, COUNT(r) FROM ReservaDeInstalacao r " +
+					"GROUP BY r.inicio HAVING COUNT(r) > 1", Object[].class).getResultList();
+			if(!twice.isEmpty()) {
+				throw new IllegalStateException(twice.size() + " days booked more than once, the first one " +
+						twice.get(0)[0]);
+			}
+			long booked = em.createQuery("SELECT COUNT(r) FROM ReservaDeInstalacao r", Long.class).getSingleResult();
+			// a day with only one of its two bookings made when the trial ended is booked as well
+			long asked = (requests.get() + 1) / 2;
+			if(booked != asked) {
+				throw new IllegalStateException(asked + " days asked for, " + booked + " booked");
+			}
+		} finally {
+			em.close();
+			db.close();
+		}
+	}
+
+	@Benchmark
+	public void book(Bookings bookings) {
+		Date day = new Date(requests.getAndIncrement() / 2 * BenchmarkDatabase.DAY);
+		try {
+			handler.reservar(db.getInstalacao(), day, day);
+			bookings.commits++;
+		} catch (ApplicationException e) {
+			bookings.rejections++;
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.empresa.Empresa;
+import business.empresa.EmpresaCatalog;
+import business.event.EventCatalog;
+import business.eventtype.EventType;
+import business.eventtype.EventTypeCatalog;
+import business.instalacao.Instalacao;
+import business.instalacao.InstalacaoCatalog;
+
+/**
+ * Lookups of the catalogs and entities used while creating events and
+ * booking installations, against a database of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	private int rows;
+
+	private BenchmarkDatabase db;
+	private EntityManager em;
+	private EventCatalog eventCatalog;
+	private EventType concerto;
+	private Empresa empresa;
+	private Instalacao instalacao;
+	private Date freeStart;
+	private Date freeEnd;
+	private Date takenStart;
+	private Date takenEnd;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		db = BenchmarkDatabase.create("catalog" + rows, rows, rows);
+		em = db.getEntityManagerFactory().createEntityManager();
+		eventCatalog = new EventCatalog(em);
+		concerto = new EventTypeCatalog(em).getEventTypeByName(BenchmarkDatabase.CONCERTO);
+		empresa = new EmpresaCatalog(em).getEmpresaById(db.getLicensedEmpresa());
+		instalacao = new InstalacaoCatalog(em).getInstalacaoById(db.getInstalacao());
+		instalacao.getReservas().size();
+		// the middle of the reservations, in a gap and on a reservation
+		long middle = (rows / 2) * BenchmarkDatabase.RESERVATION_PERIOD;
+		freeStart = new Date(middle + BenchmarkDatabase.DAY);
+		freeEnd = new Date(middle + BenchmarkDatabase.DAY + BenchmarkDatabase.DAY / 2);
+		takenStart = new Date(middle);
+		takenEnd = new Date(middle + 1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		db.close();
+	}
+
+	@Benchmark
+	public boolean nameIsAvailableTaken() {
+		return eventCatalog.nameIsAvailable(BenchmarkDatabase.EVENT_NAME_PREFIX + (rows / 2));
+	}
+
+	@Benchmark
+	public boolean nameIsAvailableFree() {
+		return eventCatalog.nameIsAvailable("Evento por criar");
+	}
+
+	@Benchmark
+	public boolean haveLicense() {
+		return empresa.haveLicense(concerto);
+	}
+
+	@Benchmark
+	public boolean availableOnFree() {
+		return instalacao.availableOn(freeStart, freeEnd);
+	}
+
+	@Benchmark
+	public boolean availableOnTaken() {
+		return instalacao.availableOn(takenStart, takenEnd);
+	}
+
+}
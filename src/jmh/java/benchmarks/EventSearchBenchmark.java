@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.event.EventCatalog;
+import business.event.EventSummary;
+import business.handlers.QueryHandler;
+import dbutils.DataSeeder;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Date-range search of events over a Dates table with the given number of
+ * time frames, ten per event, spread over three years.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventSearchBenchmark {
+
+	private static final int DATES_PER_EVENT = 10;
+	private static final int PAGE_SIZE = 100;
+	// a week in the middle of the seeded dates
+	private static final Date FROM = new Date(1770000000000L);
+	private static final Date TO = new Date(FROM.getTime() + 7 * BenchmarkDatabase.DAY);
+
+	@Param({"100000", "1000000", "10000000"})
+	private int timeFrames;
+
+	private BenchmarkDatabase db;
+	private EntityManager em;
+	private EventCatalog eventCatalog;
+	private QueryHandler queries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		int events = timeFrames / DATES_PER_EVENT;
+		db = BenchmarkDatabase.create("search" + timeFrames,
+				new DataSeeder(10, 100, 1, events, DATES_PER_EVENT, 0, 42));
+		em = db.getEntityManagerFactory().createEntityManager();
+		eventCatalog = new EventCatalog(em);
+		queries = new QueryHandler(db.getEntityManagerFactory());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		db.close();
+	}
+
+	@Benchmark
+	public List<EventSummary> firstPage() throws ApplicationException {
+		return queries.findEventsBetween(FROM, TO, null, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public long streamAll() {
+		return eventCatalog.streamEventsBetween(FROM, TO, PAGE_SIZE).count();
+	}
+
+}
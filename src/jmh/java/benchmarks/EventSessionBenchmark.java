@@ -0,0 +1,145 @@
+package benchmarks;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import business.event.EventNameIndex;
+import business.handlers.NewEventHandler;
+import facade.exceptions.ApplicationException;
+import facade.services.EventService;
+
+/**
+ * Concurrent clients creating events step by step, each one with its own
+ * event service, and so its own session, over a shared handler, with 1 to 8
+ * clients to show how the throughput scales. Even clients create concerts
+ * of the licensed company, odd ones festivals of the unlicensed one. Once
+ * done, the trial fails if an event has the type, company or date of
+ * another client's session, or if an event created is missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSessionBenchmark {
+
+	private static final String PREFIX = "Sessao ";
+
+	/**
+	 * The event service of one client.
+	 */
+	@State(Scope.Thread)
+	public static class Client {
+		private EventService service;
+		private int client;
+		private String tipo;
+		private int empresa;
+
+		@Setup(Level.Trial)
+		public void setUp(EventSessionBenchmark benchmark, ThreadParams thread) {
+			service = new EventService(benchmark.handler);
+			client = thread.getThreadIndex();
+			tipo = expectedTipo(client);
+			empresa = benchmark.expectedEmpresa(client);
+		}
+	}
+
+	private BenchmarkDatabase db;
+	private NewEventHandler handler;
+	private final AtomicInteger days = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		db = BenchmarkDatabase.create("sessions", 0, 0);
+		handler = new NewEventHandler(db.getEntityManagerFactory(), new EventNameIndex(), null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try {
+			List<Object[]> events = em.createQuery("SELECT ev.name, ev.eventType.name, ev.empresa.id, d.start " +
+					"FROM Event ev JOIN ev.datas d WHERE ev.name LIKE :prefix", Object[].class)
+					.setParameter("prefix", PREFIX + "%").getResultList();
+			for (Object[] event : events) {
+				String[] name = ((String) event[0]).substring(PREFIX.length()).split("-");
+				int client = Integer.parseInt(name[0]);
+				long start = Long.parseLong(name[1]) * BenchmarkDatabase.DAY;
+				if(!expectedTipo(client).equals(event[1]) || expectedEmpresa(client) != (Integer) event[2] ||
+						((java.util.Date) event[3]).getTime() != start) {
+					throw new IllegalStateException("Event " + event[0] + " created with " + event[1] + ", company " +
+							event[2] + ", on " + event[3]);
+				}
+			}
+			if(events.size() != days.get()) {
+				throw new IllegalStateException(days.get() + " events created, " + events.size() + " found");
+			}
+		} finally {
+			em.close();
+			db.close();
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void oneClient(Client client) throws ApplicationException {
+		createEvent(client);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public void twoClients(Client client) throws ApplicationException {
+		createEvent(client);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void fourClients(Client client) throws ApplicationException {
+		createEvent(client);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void eightClients(Client client) throws ApplicationException {
+		createEvent(client);
+	}
+
+	private void createEvent(Client client) throws ApplicationException {
+		int day = days.getAndIncrement();
+		Date start = new Date(day * BenchmarkDatabase.DAY);
+		client.service.setTipoDeEvento(client.tipo);
+		client.service.setNome(PREFIX + client.client + "-" + day);
+		client.service.setEmpresa(client.empresa);
+		client.service.addDate(start, new Date(start.getTime() + BenchmarkDatabase.DAY / 2));
+		client.service.createEvent();
+	}
+
+	private static String expectedTipo(int client) {
+		return client % 2 == 0 ? BenchmarkDatabase.CONCERTO : BenchmarkDatabase.FESTIVAL;
+	}
+
+	private int expectedEmpresa(int client) {
+		return client % 2 == 0 ? db.getLicensedEmpresa() : db.getUnlicensedEmpresa();
+	}
+
+}
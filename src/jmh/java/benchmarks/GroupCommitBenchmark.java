@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.event.EventNameIndex;
+import business.handlers.GroupCommitWriter;
+import business.handlers.NewEventHandler;
+import business.metrics.HandlerMetrics;
+import facade.dto.EventRequest;
+import facade.exceptions.ApplicationException;
+import facade.services.EventService;
+
+/**
+ * Events created per second by concurrent clients, each event committed
+ * on its own or by the write-behind writer together with others. Every
+ * operation waits until its event is committed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class GroupCommitBenchmark {
+
+	@Param({"100"})
+	private int batchSize;
+
+	private BenchmarkDatabase db;
+	private GroupCommitWriter writer;
+	private NewEventHandler handler;
+	private final AtomicInteger names = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		db = BenchmarkDatabase.create("groupcommit" + batchSize, 1000, 0);
+		EventNameIndex nameIndex = new EventNameIndex();
+		writer = new GroupCommitWriter(db.getEntityManagerFactory(), nameIndex, 10000, batchSize, 5);
+		handler = new NewEventHandler(db.getEntityManagerFactory(), nameIndex, null, new HandlerMetrics(), writer);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		writer.stop();
+		db.close();
+	}
+
+	@Benchmark
+	public void synchronous() throws ApplicationException {
+		new EventService(handler).createEvent(request());
+	}
+
+	@Benchmark
+	public void writeBehind() throws ApplicationException {
+		new EventService(handler).createEventWriteBehind(request()).join();
+	}
+
+	private EventRequest request() {
+		int n = names.incrementAndGet();
+		EventRequest request = new EventRequest(BenchmarkDatabase.CONCERTO, "Grupo " + n, db.getLicensedEmpresa());
+		request.addDate(new Date(n * BenchmarkDatabase.DAY), new Date(n * BenchmarkDatabase.DAY + BenchmarkDatabase.DAY / 2));
+		return request;
+	}
+
+}
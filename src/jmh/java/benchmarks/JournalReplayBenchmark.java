@@ -0,0 +1,133 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.event.Event;
+import business.event.EventNameIndex;
+import business.instalacao.OccupancyMap;
+import business.journal.ChangeJournal;
+import business.reservainstalacao.ReservaDeInstalacao;
+import dbutils.DataSeeder;
+
+/**
+ * Recovery on start of the index of the event names and of the occupancy
+ * map, by replaying the journal against reading them from the database.
+ * The journal holds a checkpoint with every name followed by every
+ * reservation, so that both recover the same state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalReplayBenchmark {
+
+	private static final int INSTALACOES = 100;
+	private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+	// the first day of the seeded data
+	private static final Date ORIGIN = new Date(1735689600000L);
+
+	@Param({"10000", "100000"})
+	private int events;
+
+	private BenchmarkDatabase db;
+	private Path journalDir;
+	private OccupancyMap occupancy;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		db = BenchmarkDatabase.create("journal" + events,
+				new DataSeeder(20, 100, INSTALACOES, events, 2, events / INSTALACOES, 42));
+		Path dir = Files.createTempDirectory("journal");
+		journalDir = dir.resolve("journal");
+		occupancy = OccupancyMap.open(dir.resolve("occupancy.map"), ORIGIN, 4 * 366, INSTALACOES);
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try (ChangeJournal journal = ChangeJournal.open(journalDir, SEGMENT_SIZE)) {
+			// the reservations are appended after the checkpoint, so they are not in its mark
+			Object[] events = em.createNamedQuery(Event.HIGH_WATER_MARK, Object[].class).getSingleResult();
+			journal.checkpoint(em.createNamedQuery(Event.GET_ALL_NAMES, String.class).getResultList(),
+					new ChangeJournal.HighWaterMark((Long) events[0], (Integer) events[1], 0, 0));
+			for (ReservaDeInstalacao r : em.createQuery("SELECT r FROM ReservaDeInstalacao r",
+					ReservaDeInstalacao.class).getResultList()) {
+				journal.reservaCreated(r);
+			}
+		} finally {
+			em.close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		occupancy.close();
+		db.close();
+	}
+
+	@Benchmark
+	public EventNameIndex databaseReload() throws IOException {
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try {
+			EventNameIndex nameIndex = new EventNameIndex();
+			nameIndex.warmUp(em);
+			occupancy.rebuild(em);
+			return nameIndex;
+		} finally {
+			em.close();
+		}
+	}
+
+	@Benchmark
+	public EventNameIndex journalReplay() throws IOException {
+		List<String> names = new ArrayList<>();
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try (ChangeJournal journal = ChangeJournal.open(journalDir, SEGMENT_SIZE)) {
+			journal.replay(new ChangeJournal.Listener() {
+				@Override
+				public void nameRecorded(String nome) {
+					names.add(nome);
+				}
+				@Override
+				public void eventCreated(int id, String nome) {
+					names.add(nome);
+				}
+				@Override
+				public void reservaCreated(int id, int instalacao, long inicio, long fim) {
+					try {
+						occupancy.reserve(instalacao, new Date(inicio), new Date(fim));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, ChangeJournal.HighWaterMark.of(em));
+		} finally {
+			em.close();
+		}
+		EventNameIndex nameIndex = new EventNameIndex();
+		nameIndex.warmUp(names);
+		return nameIndex;
+	}
+
+}
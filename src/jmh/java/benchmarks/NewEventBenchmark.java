@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.event.EventNameIndex;
+import business.handlers.NewEventHandler;
+import business.handlers.NewEventSession;
+import facade.dto.EventRequest;
+import facade.exceptions.ApplicationException;
+import facade.services.EventService;
+
+/**
+ * The event creation use case, step by step and in a single request,
+ * against a database with the given number of events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NewEventBenchmark {
+
+	private static final int DATES = 100;
+
+	@Param({"1000", "100000", "1000000"})
+	private int rows;
+
+	private BenchmarkDatabase db;
+	private NewEventHandler handler;
+	private final AtomicInteger names = new AtomicInteger();
+	private final Date[] starts = new Date[DATES];
+	private final Date[] ends = new Date[DATES];
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		db = BenchmarkDatabase.create("newevent" + rows, rows, 0);
+		handler = new NewEventHandler(db.getEntityManagerFactory(), new EventNameIndex(), null);
+		for (int i = 0; i < DATES; i++) {
+			starts[i] = new Date(i * BenchmarkDatabase.DAY);
+			ends[i] = new Date(i * BenchmarkDatabase.DAY + BenchmarkDatabase.DAY / 2);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DATES)
+	public NewEventSession addDate() throws ApplicationException {
+		NewEventSession session = handler.newSession();
+		for (int i = 0; i < DATES; i++) {
+			handler.addDate(session, starts[i], ends[i]);
+		}
+		return session;
+	}
+
+	@Benchmark
+	public void createEventStepByStep() throws ApplicationException {
+		EventService service = new EventService(handler);
+		service.setTipoDeEvento(BenchmarkDatabase.CONCERTO);
+		service.setNome("Passo a passo " + names.incrementAndGet());
+		service.setEmpresa(db.getLicensedEmpresa());
+		service.addDate(new java.sql.Date(starts[0].getTime()), new java.sql.Date(ends[0].getTime()));
+		service.createEvent();
+	}
+
+	@Benchmark
+	public void createEventRequest() throws ApplicationException {
+		EventRequest request = new EventRequest(BenchmarkDatabase.CONCERTO, "Pedido " + names.incrementAndGet(),
+				db.getLicensedEmpresa());
+		request.addDate(starts[0], ends[0]);
+		new EventService(handler).createEvent(request);
+	}
+
+}
@@ -0,0 +1,115 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.cache.ReferenceSnapshot;
+import business.empresa.Empresa;
+import business.empresa.EmpresaCatalog;
+import business.eventtype.EventType;
+import business.eventtype.EventTypeCatalog;
+import business.exceptions.EmpresaNotFoundException;
+import business.exceptions.EventTypeNotFoundException;
+import dbutils.DataSeeder;
+
+/**
+ * Lookups of companies and event types in a reference snapshot against
+ * the queries of their catalogs. The heap taken by the snapshot is
+ * printed when it is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceSnapshotBenchmark {
+
+	private static final int EVENT_TYPES = 50;
+
+	@Param({"1000", "100000"})
+	private int empresas;
+
+	private BenchmarkDatabase db;
+	private EntityManager em;
+	private ReferenceSnapshot snapshot;
+	private int[] ids;
+	private String[] names;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		db = BenchmarkDatabase.create("snapshot" + empresas,
+				new DataSeeder(EVENT_TYPES, empresas, empresas / 10, 0, 0, 0, 42));
+		em = db.getEntityManagerFactory().createEntityManager();
+		List<Integer> empresaIds = em.createQuery("SELECT e.id FROM Empresa e", Integer.class).getResultList();
+		ids = new int[empresaIds.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = empresaIds.get(i);
+		}
+		names = em.createNamedQuery(EventType.GET_ALL_NAMES, String.class).getResultList().toArray(new String[0]);
+
+		// the first load also prepares the queries, which is not counted
+		EntityManager loader = db.getEntityManagerFactory().createEntityManager();
+		ReferenceSnapshot.load(loader, 0);
+		loader.close();
+		loader = db.getEntityManagerFactory().createEntityManager();
+		long before = usedHeap();
+		snapshot = ReferenceSnapshot.load(loader, 1);
+		loader.close();
+		long after = usedHeap();
+		System.out.printf("%nSnapshot of %d entities: %d KiB%n", snapshot.size(), (after - before) / 1024);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		db.close();
+	}
+
+	@Benchmark
+	public Empresa empresaFromSnapshot() {
+		return snapshot.getEmpresa(ids[next++ % ids.length]);
+	}
+
+	@Benchmark
+	public Empresa empresaFromCatalog() throws EmpresaNotFoundException {
+		return new EmpresaCatalog(em).getEmpresaById(ids[next++ % ids.length]);
+	}
+
+	@Benchmark
+	public EventType eventTypeFromSnapshot() {
+		return snapshot.getEventType(names[next++ % names.length]);
+	}
+
+	@Benchmark
+	public EventType eventTypeFromCatalog() throws EventTypeNotFoundException {
+		return new EventTypeCatalog(em).getEventTypeByName(names[next++ % names.length]);
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,122 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.instalacao.Instalacao;
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.reservainstalacao.ReservaDeInstalacaoCatalog;
+import dbutils.DataSeeder;
+
+/**
+ * The overlap check of a booking against {@value #RESERVATIONS}
+ * reservations of {@value #INSTALACOES} installations, on a random
+ * installation and day: the range queries of the catalog, with and without
+ * IDX_RESERVA_INSTALACAO_DATAS, and the loading of all the reservations of
+ * the installation that they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReservationOverlapBenchmark {
+
+	private static final int RESERVATIONS = 1000000;
+	private static final int INSTALACOES = 50;
+	// the first day of the seeded reservations, and the days they cover at least
+	private static final long ORIGIN = 1735689600000L;
+	private static final int DAYS = 60000;
+
+	@Param({"true", "false"})
+	private boolean index;
+
+	private BenchmarkDatabase db;
+	private EntityManager em;
+	private ReservaDeInstalacaoCatalog catalog;
+	private List<Integer> instalacoes;
+	private final Random random = new Random(42);
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		String name = "overlap" + index;
+		db = BenchmarkDatabase.create(name,
+				new DataSeeder(10, 100, INSTALACOES, 0, 0, RESERVATIONS / INSTALACOES, 42));
+		if(!index) {
+			try (Connection connection = DriverManager.getConnection("jdbc:derby:memory:" + name);
+					Statement statement = connection.createStatement()) {
+				statement.executeUpdate("DROP INDEX IDX_RESERVA_INSTALACAO_DATAS");
+			}
+		}
+		em = db.getEntityManagerFactory().createEntityManager();
+		catalog = new ReservaDeInstalacaoCatalog(em);
+		instalacoes = em.createNamedQuery(Instalacao.FIND_ALL_IDS, Integer.class).getResultList();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		db.close();
+	}
+
+	@Benchmark
+	public boolean isAvailable() {
+		Date day = randomDay();
+		return catalog.isAvailable(randomInstalacao(), day, day);
+	}
+
+	@Benchmark
+	public List<ReservaDeInstalacao> findConflicts() {
+		Date day = randomDay();
+		List<ReservaDeInstalacao> conflicts = catalog.findConflicts(randomInstalacao(), day, day);
+		em.clear();
+		return conflicts;
+	}
+
+	@Benchmark
+	public boolean loadAllReservations() {
+		Date day = randomDay();
+		List<ReservaDeInstalacao> reservas = em.createQuery("SELECT r FROM ReservaDeInstalacao r " +
+				"WHERE r.instalacao = :instalacao", ReservaDeInstalacao.class)
+				.setParameter("instalacao", randomInstalacao()).getResultList();
+		boolean available = true;
+		for (ReservaDeInstalacao r : reservas) {
+			if(!r.getInicio().after(day) && !r.getFim().before(day)) {
+				available = false;
+			}
+		}
+		em.clear();
+		return available;
+	}
+
+	private Instalacao randomInstalacao() {
+		return em.getReference(Instalacao.class, instalacoes.get(random.nextInt(instalacoes.size())));
+	}
+
+	private Date randomDay() {
+		return new Date(ORIGIN + random.nextInt(DAYS) * BenchmarkDatabase.DAY);
+	}
+
+}
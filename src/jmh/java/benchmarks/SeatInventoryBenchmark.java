@@ -0,0 +1,167 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.instalacao.Instalacao;
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.seat.Seat;
+import business.seat.SeatInventory;
+import business.seat.SeatInventoryCatalog;
+
+/**
+ * The allocation of the given number of best seats of a 50,000-seat
+ * reservation, half of whose seats are taken at random: in memory, and
+ * read from and written to the database (the transaction is rolled back,
+ * so that the seats stay free). Once seeded, the database pages and the
+ * heap taken by its inventory are printed next to those of 50,000 rows of
+ * the Seat entity, one per seat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatInventoryBenchmark {
+
+	private static final int CHUNK = 1000;
+
+	@Param({"2", "8", "32"})
+	private int seats;
+
+	private BenchmarkDatabase db;
+	private EntityManager em;
+	private SeatInventory inventory;
+	private ReservaDeInstalacao reserva;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		db = BenchmarkDatabase.create("seats" + seats, 0, 0);
+		em = db.getEntityManagerFactory().createEntityManager();
+		em.getTransaction().begin();
+		Instalacao venue = em.find(Instalacao.class, db.getInstalacao());
+		reserva = new ReservaDeInstalacao(venue, new Date(0), new Date(0));
+		ReservaDeInstalacao rows = new ReservaDeInstalacao(venue, new Date(BenchmarkDatabase.DAY),
+				new Date(BenchmarkDatabase.DAY));
+		em.persist(reserva);
+		em.persist(rows);
+		inventory = new SeatInventoryCatalog(em).addNewSeatInventory(reserva, venue.getEventType());
+		Random random = new Random(42);
+		int[] taken = new int[inventory.getCapacity() / 2];
+		for (int seat = 0, i = 0; i < taken.length; seat++) {
+			if(random.nextInt(inventory.getCapacity() - seat) < taken.length - i) {
+				taken[i++] = seat;
+			}
+		}
+		inventory.take(taken);
+		em.getTransaction().commit();
+		for (int i = 0; i < inventory.getCapacity(); i += CHUNK) {
+			em.getTransaction().begin();
+			for (int j = i; j < Math.min(inventory.getCapacity(), i + CHUNK); j++) {
+				em.persist(new Seat(rows));
+			}
+			em.getTransaction().commit();
+			em.clear();
+		}
+		inventory = new SeatInventoryCatalog(em).getSeatInventory(em.find(ReservaDeInstalacao.class, reserva.getId()));
+		printSizes(rows);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		db.close();
+	}
+
+	@Benchmark
+	public int[] allocate() {
+		int[] allocated = inventory.allocate(seats);
+		inventory.release(allocated);
+		return allocated;
+	}
+
+	@Benchmark
+	public int[] allocateInTransaction() {
+		EntityManager tx = db.getEntityManagerFactory().createEntityManager();
+		try {
+			tx.getTransaction().begin();
+			SeatInventory stored = new SeatInventoryCatalog(tx).getSeatInventory(
+					tx.getReference(ReservaDeInstalacao.class, reserva.getId()));
+			int[] allocated = stored.allocate(seats);
+			tx.flush();
+			return allocated;
+		} finally {
+			tx.getTransaction().rollback();
+			tx.close();
+		}
+	}
+
+	private void printSizes(ReservaDeInstalacao rows) throws Exception {
+		// both are loaded into the shared cache and the entity manager, from the database
+		db.getEntityManagerFactory().getCache().evictAll();
+		EntityManager loader = db.getEntityManagerFactory().createEntityManager();
+		long before = usedHeap();
+		SeatInventory loaded = new SeatInventoryCatalog(loader).getSeatInventory(
+				loader.find(ReservaDeInstalacao.class, reserva.getId()));
+		loaded.isOcupado(0);
+		long inventoryHeap = usedHeap() - before;
+		loader.close();
+		db.getEntityManagerFactory().getCache().evictAll();
+		loader = db.getEntityManagerFactory().createEntityManager();
+		before = usedHeap();
+		List<Seat> seatRows = loader.createQuery("SELECT s FROM Seat s WHERE s.reserva = :reserva", Seat.class)
+				.setParameter("reserva", loader.find(ReservaDeInstalacao.class, rows.getId())).getResultList();
+		long rowsHeap = usedHeap() - before;
+		System.out.printf("%nSeatInventory of %d seats: %d KiB in the database, %d KiB of heap%n",
+				loaded.getCapacity(), databaseSize("SEATINVENTORY") / 1024, inventoryHeap / 1024);
+		System.out.printf("%d Seat rows: %d KiB in the database, %d KiB of heap%n", seatRows.size(),
+				databaseSize("SEAT") / 1024, rowsHeap / 1024);
+		loader.close();
+	}
+
+	// the pages of the table, its indexes and its LOBs
+	private long databaseSize(String table) throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:derby:memory:seats" + seats);
+				PreparedStatement statement = connection.prepareStatement("SELECT SUM((NUMALLOCATEDPAGES + " +
+						"NUMFREEPAGES) * PAGESIZE) FROM TABLE (SYSCS_DIAG.SPACE_TABLE('APP', ?)) T")) {
+			statement.setString(1, table);
+			try (ResultSet rs = statement.executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
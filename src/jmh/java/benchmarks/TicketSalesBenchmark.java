@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.instalacao.Instalacao;
+import business.metrics.LatencyHistogram;
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.seat.SeatInventory;
+import business.seat.SeatInventoryCatalog;
+import business.ticket.Hold;
+import business.ticket.TicketSalesEngine;
+import facade.exceptions.ApplicationException;
+
+/**
+ * An on-sale moment: concurrent buyers each hold and confirm
+ * {@value #SEATS} seats of a 50,000-seat reservation, {@value #PURCHASES}
+ * purchases per buyer and iteration, every iteration on a new reservation.
+ * The purchases per second and the 99th percentile of their latency are
+ * printed after every iteration. Once the confirmed sales are written, the
+ * seats taken in the database are checked against those sold, and the
+ * trial fails if a seat was sold twice or a sale was lost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = TicketSalesBenchmark.PURCHASES)
+@Measurement(iterations = 5, batchSize = TicketSalesBenchmark.PURCHASES)
+@Threads(TicketSalesBenchmark.BUYERS)
+@Fork(1)
+public class TicketSalesBenchmark {
+
+	static final int BUYERS = 8;
+	static final int PURCHASES = 2000;
+	static final int SEATS = 2;
+
+	private BenchmarkDatabase db;
+	private TicketSalesEngine engine;
+	// the seats sold of every reservation put on sale
+	private final Map<Integer, AtomicInteger> sold = new LinkedHashMap<>();
+	private volatile int reserva;
+	private volatile LatencyHistogram latency;
+	private long iterationStart;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		db = BenchmarkDatabase.create("tickets", 0, 0);
+		engine = new TicketSalesEngine(db.getEntityManagerFactory(), 60000, 500, 20);
+	}
+
+	@Setup(Level.Iteration)
+	public void openSale() throws ApplicationException {
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try {
+			em.getTransaction().begin();
+			Date day = new Date(sold.size() * BenchmarkDatabase.RESERVATION_PERIOD);
+			ReservaDeInstalacao r = new ReservaDeInstalacao(em.find(Instalacao.class, db.getInstalacao()), day, day);
+			em.persist(r);
+			em.getTransaction().commit();
+			reserva = r.getId();
+		} finally {
+			em.close();
+		}
+		engine.openSale(reserva);
+		sold.put(reserva, new AtomicInteger());
+		latency = new LatencyHistogram();
+		iterationStart = System.nanoTime();
+	}
+
+	@TearDown(Level.Iteration)
+	public void report() {
+		long elapsed = System.nanoTime() - iterationStart;
+		System.out.printf(Locale.ROOT, "%n%d purchases, %d purchases/s, p99 %d us, max %d us%n", latency.getCount(),
+				latency.getCount() * TimeUnit.SECONDS.toNanos(1) / elapsed,
+				latency.getQuantile(0.99, TimeUnit.MICROSECONDS), latency.getMax(TimeUnit.MICROSECONDS));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		engine.stop();
+		EntityManager em = db.getEntityManagerFactory().createEntityManager();
+		try {
+			SeatInventoryCatalog catalog = new SeatInventoryCatalog(em);
+			for (Map.Entry<Integer, AtomicInteger> e : sold.entrySet()) {
+				SeatInventory inventory = catalog.getSeatInventory(em.find(ReservaDeInstalacao.class, e.getKey()));
+				if(inventory.getOcupados() != e.getValue().get() || inventory.getTaken().length != e.getValue().get()) {
+					throw new IllegalStateException("Reservation " + e.getKey() + ": " + e.getValue().get() +
+							" seats sold, " + inventory.getOcupados() + " taken in the database");
+				}
+			}
+		} finally {
+			em.close();
+			db.close();
+		}
+	}
+
+	@Benchmark
+	public int[] purchase() throws ApplicationException {
+		long start = System.nanoTime();
+		Hold hold = engine.hold(reserva, SEATS);
+		int[] seats = engine.confirm(hold.getId());
+		latency.record(System.nanoTime() - start);
+		sold.get(hold.getReservaId()).addAndGet(seats.length);
+		return seats;
+	}
+
+}
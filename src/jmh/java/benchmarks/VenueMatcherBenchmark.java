@@ -0,0 +1,100 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business.SeatType;
+import business.event.TimeFrames;
+import business.eventtype.EventType;
+import business.instalacao.Instalacao;
+import business.instalacao.VenueMatch;
+import business.instalacao.VenueMatcher;
+import business.reservainstalacao.ReservaDeInstalacao;
+
+/**
+ * Search of the installations free for every session of an event, over
+ * installations held in memory, with fork/join pools of 1 to 8 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VenueMatcherBenchmark {
+
+	private static final int RESERVATIONS = 2000;
+	private static final int SESSIONS = 36;
+
+	@Param({"1", "2", "4", "8"})
+	private int threads;
+
+	@Param({"1000"})
+	private int venues;
+
+	private ForkJoinPool pool;
+	private VenueMatcher matcher;
+	private List<Instalacao> candidates;
+	private EventType eventType;
+	private TimeFrames sessions;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		pool = new ForkJoinPool(threads);
+		matcher = new VenueMatcher(pool);
+		Random random = new Random(42);
+		eventType = new EventType("Concerto", 5000, SeatType.SENTADO);
+		EventType[] venueTypes = {
+				new EventType("Sala", 8000, SeatType.SENTADO),
+				new EventType("Estadio", 50000, SeatType.SENTADO),
+				new EventType("Recinto", 20000, SeatType.EM_PE) };
+		// one week of sessions, every fourth day, over the span of the reservations
+		sessions = new TimeFrames(SESSIONS);
+		for (int i = 0; i < SESSIONS; i++) {
+			long start = (RESERVATIONS / 2 + i * 4) * BenchmarkDatabase.RESERVATION_PERIOD + BenchmarkDatabase.DAY;
+			sessions.add(start, start + BenchmarkDatabase.DAY / 4);
+		}
+		candidates = new ArrayList<>(venues);
+		for (int v = 0; v < venues; v++) {
+			Instalacao instalacao = new Instalacao("Instalacao " + v, venueTypes[v % venueTypes.length]);
+			// the reservations leave the day after each one free, except at a random session for half the venues
+			int busy = random.nextBoolean() ? RESERVATIONS / 2 + random.nextInt(SESSIONS) * 4 : -1;
+			for (int r = 0; r < RESERVATIONS; r++) {
+				long start = r * BenchmarkDatabase.RESERVATION_PERIOD;
+				long end = start + (r == busy ? BenchmarkDatabase.RESERVATION_PERIOD : BenchmarkDatabase.DAY - 1);
+				instalacao.addReserva(new ReservaDeInstalacao(instalacao, new Date(start), new Date(end)));
+			}
+			instalacao.availableOn(0, 0);
+			candidates.add(instalacao);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public List<VenueMatch> match() {
+		return matcher.match(candidates, eventType, sessions);
+	}
+
+}
@@ -0,0 +1,140 @@
+package business.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import javax.persistence.EntityManager;
+
+import business.empresa.Empresa;
+import business.eventtype.EventType;
+
+/**
+ * Reference data shared by every handler: event types and companies.
+ * <p>
+ * The cached entities are detached, so they are only to be read or used
+ * as references of new entities. Listings of reference data, by the name
+ * of their query, are kept as well and dropped on any invalidation; they
+ * are stored as unmodifiable copies, since every caller shares them.
+ * <p>
+ * Event types and companies are written only by the database scripts and
+ * {@link dbutils.DataSeeder}, before the application starts, so nothing
+ * calls the invalidation methods at runtime: they are for a tool that
+ * changes reference data while the application runs, which is otherwise
+ * seen once the time to live has passed.
+ * <p>
+ * Once a {@link ReferenceSnapshot} is loaded, lookups are answered by it
+ * first, without locks, and the caches only hold what it does not know.
+ * Like the entries of the caches, a snapshot is used only until the time
+ * to live has passed since it was read: {@link #refreshSnapshot(EntityManager)}
+ * is to be called again before then.
+ */
+public class ReferenceDataCache {
+
+	private static final String ALL = "all";
+
+	private final ReferenceCache<String, EventType> eventTypesByName;
+	private final ReferenceCache<String, List<EventType>> eventTypes;
+	private final ReferenceCache<Integer, Empresa> empresasById;
+	private final ReferenceCache<String, List<?>> listings;
+	private final long ttlNanos;
+	private final AtomicReference<ReferenceSnapshot> snapshot = new AtomicReference<>(ReferenceSnapshot.EMPTY);
+
+	public ReferenceDataCache(int maxSize, long ttl, TimeUnit unit) {
+		eventTypesByName = new ReferenceCache<>(maxSize, ttl, unit);
+		eventTypes = new ReferenceCache<>(1, ttl, unit);
+		empresasById = new ReferenceCache<>(maxSize, ttl, unit);
+		listings = new ReferenceCache<>(maxSize, ttl, unit);
+		ttlNanos = unit.toNanos(ttl);
+	}
+
+	public EventType getEventType(String name) {
+		EventType result = getSnapshot().getEventType(name);
+		return result != null ? result : eventTypesByName.get(name);
+	}
+
+	public void putEventType(EventType eventType) {
+		eventTypesByName.put(eventType.getTipo(), eventType);
+	}
+
+	public List<EventType> getEventTypes() {
+		return eventTypes.get(ALL);
+	}
+
+	public void putEventTypes(List<EventType> all) {
+		eventTypes.put(ALL, Collections.unmodifiableList(new ArrayList<>(all)));
+	}
+
+	public Empresa getEmpresa(int id) {
+		Empresa result = getSnapshot().getEmpresa(id);
+		return result != null ? result : empresasById.get(id);
+	}
+
+	public void putEmpresa(Empresa empresa) {
+		empresasById.put(empresa.getId(), empresa);
+	}
+
+	public List<?> getListing(String query) {
+		return listings.get(query);
+	}
+
+	public void putListing(String query, List<?> result) {
+		listings.put(query, Collections.unmodifiableList(new ArrayList<>(result)));
+	}
+
+	/**
+	 * @return the current snapshot, or an empty one if it has expired
+	 */
+	public ReferenceSnapshot getSnapshot() {
+		ReferenceSnapshot current = snapshot.get();
+		return current.isOlderThan(ttlNanos) ? ReferenceSnapshot.EMPTY : current;
+	}
+
+	/**
+	 * Replaces the snapshot by one read from the database.
+	 */
+	public synchronized ReferenceSnapshot refreshSnapshot(EntityManager em) {
+		ReferenceSnapshot result = ReferenceSnapshot.load(em, snapshot.get().getVersion() + 1);
+		snapshot.set(result);
+		return result;
+	}
+
+	// writers are serialized, readers keep using the previous snapshot meanwhile
+	private synchronized void update(UnaryOperator<ReferenceSnapshot> change) {
+		snapshot.set(change.apply(snapshot.get()));
+	}
+
+	public void invalidateEventType(String name) {
+		update(s -> s.withoutEventType(name));
+		eventTypesByName.invalidate(name);
+		eventTypes.invalidateAll();
+		listings.invalidateAll();
+	}
+
+	public void invalidateEmpresa(int id) {
+		update(s -> s.withoutEmpresa(id));
+		empresasById.invalidate(id);
+		listings.invalidateAll();
+	}
+
+	public void invalidateAll() {
+		update(s -> ReferenceSnapshot.EMPTY);
+		eventTypesByName.invalidateAll();
+		eventTypes.invalidateAll();
+		empresasById.invalidateAll();
+		listings.invalidateAll();
+	}
+
+	@Override
+	public String toString() {
+		return "Snapshot: " + snapshot.get() +
+				"\nEventType by name: " + eventTypesByName +
+				"\nEventType list: " + eventTypes +
+				"\nEmpresa by id: " + empresasById +
+				"\nListings: " + listings;
+	}
+
+}
@@ -0,0 +1,135 @@
+package business.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import business.empresa.Empresa;
+import business.eventtype.EventType;
+
+/**
+ * An immutable, versioned copy of the reference catalogs: event types,
+ * by id and by name, and companies, by id.
+ * <p>
+ * A snapshot is never changed once built; a change produces a new
+ * snapshot with the next version, sharing nothing mutable with this one,
+ * so it can be read by any number of threads without locks. The entities
+ * are detached: they are only to be read or used as references of new
+ * entities. A snapshot knows when it was loaded, so that it is not used
+ * for longer than the entries of the caches.
+ */
+public final class ReferenceSnapshot {
+
+	public static final ReferenceSnapshot EMPTY = new ReferenceSnapshot(0, System.nanoTime(),
+			Collections.<Integer, EventType>emptyMap(), Collections.<String, EventType>emptyMap(),
+			Collections.<Integer, Empresa>emptyMap());
+
+	private final long version;
+	private final long loadedAt;
+	private final Map<Integer, EventType> eventTypesById;
+	private final Map<String, EventType> eventTypesByName;
+	private final Map<Integer, Empresa> empresasById;
+
+	private ReferenceSnapshot(long version, long loadedAt, Map<Integer, EventType> eventTypesById,
+			Map<String, EventType> eventTypesByName, Map<Integer, Empresa> empresasById) {
+		this.version = version;
+		this.loadedAt = loadedAt;
+		this.eventTypesById = eventTypesById;
+		this.eventTypesByName = eventTypesByName;
+		this.empresasById = empresasById;
+	}
+
+	/**
+	 * Reads every event type and company.
+	 */
+	public static ReferenceSnapshot load(EntityManager em, long version) {
+		long loadedAt = System.nanoTime();
+		List<EventType> eventTypes = em.createNamedQuery(EventType.FIND_ALL, EventType.class).getResultList();
+		List<Empresa> empresas = em.createNamedQuery(Empresa.FIND_ALL, Empresa.class).getResultList();
+
+		Map<Integer, EventType> eventTypesById = new HashMap<>(capacity(eventTypes.size()));
+		Map<String, EventType> eventTypesByName = new HashMap<>(capacity(eventTypes.size()));
+		for (EventType eventType : eventTypes) {
+			eventTypesById.put(eventType.getId(), eventType);
+			eventTypesByName.put(eventType.getTipo(), eventType);
+		}
+		Map<Integer, Empresa> empresasById = new HashMap<>(capacity(empresas.size()));
+		for (Empresa empresa : empresas) {
+			// the licenses are needed once the company is detached
+			empresa.getTiposDeEventos().size();
+			empresasById.put(empresa.getId(), empresa);
+		}
+		return new ReferenceSnapshot(version, loadedAt,
+				Collections.unmodifiableMap(eventTypesById), Collections.unmodifiableMap(eventTypesByName),
+				Collections.unmodifiableMap(empresasById));
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return whether the snapshot was loaded more than the given time ago
+	 */
+	public boolean isOlderThan(long nanos) {
+		return System.nanoTime() - loadedAt > nanos;
+	}
+
+	public EventType getEventType(int id) {
+		return eventTypesById.get(id);
+	}
+
+	public EventType getEventType(String name) {
+		return eventTypesByName.get(name);
+	}
+
+	public Empresa getEmpresa(int id) {
+		return empresasById.get(id);
+	}
+
+	public int size() {
+		return eventTypesById.size() + empresasById.size();
+	}
+
+	/**
+	 * @return a copy without the event type with the given name
+	 */
+	public ReferenceSnapshot withoutEventType(String name) {
+		EventType old = eventTypesByName.get(name);
+		if(old == null) {
+			return this;
+		}
+		Map<Integer, EventType> byId = new HashMap<>(eventTypesById);
+		Map<String, EventType> byName = new HashMap<>(eventTypesByName);
+		byId.remove(old.getId());
+		byName.remove(name);
+		return new ReferenceSnapshot(version + 1, loadedAt, Collections.unmodifiableMap(byId),
+				Collections.unmodifiableMap(byName), empresasById);
+	}
+
+	/**
+	 * @return a copy without the company with the given id
+	 */
+	public ReferenceSnapshot withoutEmpresa(int id) {
+		if(!empresasById.containsKey(id)) {
+			return this;
+		}
+		Map<Integer, Empresa> byId = new HashMap<>(empresasById);
+		byId.remove(id);
+		return new ReferenceSnapshot(version + 1, loadedAt, eventTypesById, eventTypesByName,
+				Collections.unmodifiableMap(byId));
+	}
+
+	private static int capacity(int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+
+	@Override
+	public String toString() {
+		return "version=" + version + " eventTypes=" + eventTypesById.size() + " empresas=" + empresasById.size();
+	}
+
+}
@@ -1,6 +1,7 @@
 package business.empresa;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import javax.persistence.Entity;
@@ -9,16 +10,22 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.Transient;
 
 import business.eventtype.EventType;
 
 @Entity
-@NamedQuery(name=Empresa.FIND_BY_ID, query="SELECT e FROM Empresa e WHERE e.id = :" + 
-		Empresa.ID)
+@NamedQueries({
+	@NamedQuery(name=Empresa.FIND_BY_ID, query="SELECT e FROM Empresa e WHERE e.id = :" + 
+			Empresa.ID),
+	@NamedQuery(name=Empresa.FIND_ALL, query="SELECT e FROM Empresa e")
+})
 public class Empresa {
 
 	public static final String FIND_BY_ID = "Empresa.findById";
+	public static final String FIND_ALL = "Empresa.findAll";
 	public static final String ID = "id";
 
 
@@ -29,6 +36,12 @@ public class Empresa {
 	@JoinTable(name = "EVENTS_ALLOWED")
 	private List<EventType> tipos_de_eventos;
 	
+	// the ids of the licensed event types, built on first use
+	@Transient
+	private volatile BitSet licencas;
+	
+	Empresa(){}
+	
 	public Empresa(List<EventType> authEvents) {
 		tipos_de_eventos = new ArrayList<>();
 		for (EventType eventType : authEvents) {
@@ -45,12 +58,19 @@ public class Empresa {
 	}
 
 	public boolean haveLicense(EventType eventType) {
-		for (EventType ev : tipos_de_eventos) {
-			if(ev.getTipo().contentEquals(eventType.getTipo())) {
-				return true;
+		return getLicencas().get(eventType.getId());
+	}
+	
+	BitSet getLicencas() {
+		BitSet result = licencas;
+		if(result == null) {
+			result = new BitSet();
+			for (EventType ev : tipos_de_eventos) {
+				result.set(ev.getId());
 			}
+			licencas = result;
 		}
-		return false;
+		return result;
 	}
 	
 	
@@ -1,29 +1,80 @@
 package business.empresa;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
+import business.cache.ReferenceDataCache;
+import business.eventtype.EventType;
 import business.exceptions.EmpresaNotFoundException;
 
 
 public class EmpresaCatalog {
 
 	private EntityManager em;
+	private ReferenceDataCache cache;
 	
 	public EmpresaCatalog(EntityManager em) {
+		this(em, null);
+	}
+
+	public EmpresaCatalog(EntityManager em, ReferenceDataCache cache) {
 		this.em = em;
+		this.cache = cache;
 	}
 
 	public Empresa getEmpresaById(int id) throws EmpresaNotFoundException {
+		if(cache != null) {
+			Empresa cached = cache.getEmpresa(id);
+			if(cached != null) {
+				return cached;
+			}
+		}
 		try {
 			TypedQuery<Empresa> query = em.createNamedQuery(Empresa.FIND_BY_ID, Empresa.class);
 			query.setParameter(Empresa.ID, id);
-			return query.getSingleResult();
+			Empresa result = query.getSingleResult();
+			if(cache != null) {
+				// the licenses are needed once the company is detached
+				result.getLicencas();
+				cache.putEmpresa(result);
+			}
+			return result;
 		} catch (Exception e) {
 			throw new EmpresaNotFoundException("Company with id " + id + " does not exist", e);
 		}
 	}
-	
-	
+
+	public List<Empresa> getEmpresasWithLicense(Iterable<Empresa> empresas, EventType eventType) {
+		int tipo = eventType.getId();
+		List<Empresa> result = new ArrayList<>();
+		for (Empresa e : empresas) {
+			if(e.getLicencas().get(tipo)) {
+				result.add(e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Loads at most {@code max} companies, with their licenses, into the cache.
+	 *
+	 * @return the number of companies loaded
+	 */
+	public int warmCache(int max) {
+		if(cache == null) {
+			return 0;
+		}
+		TypedQuery<Empresa> query = em.createNamedQuery(Empresa.FIND_ALL, Empresa.class);
+		query.setMaxResults(max);
+		List<Empresa> result = query.getResultList();
+		for (Empresa empresa : result) {
+			empresa.getLicencas();
+			cache.putEmpresa(empresa);
+		}
+		return result.size();
+	}
 
 }
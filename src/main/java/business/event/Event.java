@@ -1,6 +1,7 @@
 package business.event;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.persistence.*;
@@ -12,11 +13,30 @@ import business.instalacao.Instalacao;
 
 
 @Entity
-@NamedQuery(name=Event.GET_ALL_NAMES, query="SELECT ev.name FROM Event ev")
+@NamedQueries({
+	@NamedQuery(name=Event.GET_ALL_NAMES, query="SELECT ev.name FROM Event ev"),
+	@NamedQuery(name=Event.COUNT_BY_NAME, query="SELECT COUNT(ev) FROM Event ev WHERE ev.name = :" +
+			Event.EVENT_NAME),
+	@NamedQuery(name=Event.FIND_BETWEEN, query="SELECT ev.id, d.start, d.end FROM Event ev JOIN ev.datas d " +
+			"WHERE d.end >= :" + Event.AFTER + " AND (d.end > :" + Event.AFTER + " OR COLUMN('id', d) > :" +
+			Event.AFTER_ID + ") AND d.start <= :" + Event.TO + " ORDER BY d.end, COLUMN('id', d)"),
+	@NamedQuery(name=Event.FIND_SUMMARIES, query="SELECT NEW business.event.EventSummary(ev.id, ev.name, " +
+			"ev.eventType.name, ev.empresa.id) FROM Event ev WHERE ev.id IN :" + Event.IDS),
+	@NamedQuery(name=Event.HIGH_WATER_MARK, query="SELECT COUNT(ev), MAX(ev.id) FROM Event ev")
+})
 public class Event {
 
 
 	public static final String GET_ALL_NAMES = "Event.getAllNames";
+	public static final String COUNT_BY_NAME = "Event.countByName";
+	public static final String EVENT_NAME = "name";
+	public static final String FIND_BETWEEN = "Event.findBetween";
+	public static final String FIND_SUMMARIES = "Event.findSummaries";
+	public static final String TO = "to";
+	public static final String AFTER = "after";
+	public static final String AFTER_ID = "afterId";
+	public static final String IDS = "ids";
+	public static final String HIGH_WATER_MARK = "Event.highWaterMark";
 
 	@Id @GeneratedValue(strategy = GenerationType.AUTO)
 	private int id;
@@ -25,18 +45,25 @@ public class Event {
 	private String name;
 	
 	 @ElementCollection
-	   @CollectionTable(name="Dates", joinColumns=@JoinColumn(name="id",referencedColumnName = "id"))
+	   @CollectionTable(name="Dates", joinColumns=@JoinColumn(name="id",referencedColumnName = "id"),
+	   		indexes = {@Index(name = "IDX_DATES_END", columnList = "END_DATE, id, START_DATE"),
+	   				@Index(name = "IDX_DATES_EVENT", columnList = "id")})
+	 @OrderBy("start ASC")
 	private List<EventTimeFrame> datas;
 	
-	@Column(nullable = false)
+	@Transient
+	private TimeFrames timeFrames;
+	
+	@ManyToOne
+	@JoinColumn(nullable = false)
 	private EventType eventType;
 	
 	@ManyToOne
-	@Column(nullable = false)
+	@JoinColumn(nullable = false)
 	private Empresa empresa;
 	
 	@ManyToOne
-	@Column(nullable = true)
+	@JoinColumn(nullable = true)
 	private Instalacao instalacao;
 	Event(){}
 	
@@ -74,9 +101,21 @@ public class Event {
 		return empresa;
 	}
 	
-	public EventTimeFrame[] getDatas() {
-		EventTimeFrame[] aux = new EventTimeFrame[datas.size()];
-		return datas.toArray(aux);
+	/**
+	 * @return a read-only view of the dates, sorted by start
+	 */
+	public List<EventTimeFrame> getDatas() {
+		return Collections.unmodifiableList(datas);
+	}
+	
+	/**
+	 * @return the dates as epoch milliseconds, built on first use
+	 */
+	public TimeFrames getTimeFrames() {
+		if(timeFrames == null) {
+			timeFrames = TimeFrames.of(datas);
+		}
+		return timeFrames;
 	}
 	
 	
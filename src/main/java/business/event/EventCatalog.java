@@ -1,8 +1,22 @@
 package business.event;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
 
 import business.empresa.Empresa;
@@ -11,24 +25,99 @@ import business.eventtype.EventType;
 public class EventCatalog {
 	
 	private EntityManager em;
+	private EventNameIndex nameIndex;
 
 	public EventCatalog(EntityManager em) {
+		this(em, null);
+	}
+
+	public EventCatalog(EntityManager em, EventNameIndex nameIndex) {
 		this.em = em;
+		this.nameIndex = nameIndex;
 	}
 
 	public boolean nameIsAvailable(String name) {
+		if(nameIndex != null && nameIndex.isWarm()) {
+			return !nameIndex.contains(name);
+		}
 		try {
-			TypedQuery<String> query = em.createNamedQuery(Event.GET_ALL_NAMES, String.class);
-			return !query.getResultList().contains(name);
+			TypedQuery<Long> query = em.createNamedQuery(Event.COUNT_BY_NAME, Long.class);
+			query.setParameter(Event.EVENT_NAME, name);
+			return query.getSingleResult() == 0;
 		} catch (Exception e) {
 			return false; 
 		}	
 	}
 
-	public void addNewEvent(String nome, EventType eventType, List<EventTimeFrame> timeFrames, Empresa empresa) {
-		em.persist(new Event(nome,eventType,timeFrames,empresa));		
+	public Event addNewEvent(String nome, EventType eventType, List<EventTimeFrame> timeFrames, Empresa empresa) {
+		Event event = new Event(nome,eventType,timeFrames,empresa);
+		em.persist(event);
+		return event;
 	}
 	
-
+	/**
+	 * Finds a page of the sessions sharing an instant with {@code [from, to]},
+	 * ordered by their end and then by event (keyset pagination). The pages are
+	 * read from the (END_DATE, id) index of Dates, so a page costs the same
+	 * wherever it is; the summaries of its events are then loaded by id.
+	 * 
+	 * @param after the last session of the previous page, null for the first page
+	 */
+	public List<EventSummary> findEventsBetween(Date from, Date to, EventSummary after, int pageSize) {
+		TypedQuery<Object[]> query = em.createNamedQuery(Event.FIND_BETWEEN, Object[].class);
+		query.setParameter(Event.AFTER, after == null ? from : after.getEnd(), TemporalType.TIMESTAMP);
+		query.setParameter(Event.AFTER_ID, after == null ? 0 : after.getId());
+		query.setParameter(Event.TO, to, TemporalType.TIMESTAMP);
+		query.setMaxResults(pageSize);
+		List<Object[]> sessions = query.getResultList();
+		if(sessions.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Set<Integer> ids = new HashSet<>();
+		for(Object[] session : sessions) {
+			ids.add((Integer) session[0]);
+		}
+		Map<Integer, EventSummary> events = new HashMap<>();
+		TypedQuery<EventSummary> summaries = em.createNamedQuery(Event.FIND_SUMMARIES, EventSummary.class);
+		summaries.setParameter(Event.IDS, ids);
+		for(EventSummary event : summaries.getResultList()) {
+			events.put(event.getId(), event);
+		}
+		List<EventSummary> page = new ArrayList<>(sessions.size());
+		for(Object[] session : sessions) {
+			page.add(new EventSummary(events.get(session[0]), (Date) session[1], (Date) session[2]));
+		}
+		return page;
+	}
+	
+	/**
+	 * Like {@link #findEventsBetween(Date, Date, EventSummary, int)}, but over every
+	 * page: the pages are fetched as the stream is consumed, so at most one
+	 * page is held in memory. The entity manager must stay open meanwhile.
+	 */
+	public Stream<EventSummary> streamEventsBetween(Date from, Date to, int pageSize) {
+		Spliterator<EventSummary> pages = new Spliterators.AbstractSpliterator<EventSummary>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			private Iterator<EventSummary> page;
+			private EventSummary previous;
+			private boolean last;
+			
+			@Override
+			public boolean tryAdvance(Consumer<? super EventSummary> action) {
+				if((page == null || !page.hasNext()) && !last) {
+					List<EventSummary> result = findEventsBetween(from, to, previous, pageSize);
+					last = result.size() < pageSize;
+					page = result.iterator();
+				}
+				if(page == null || !page.hasNext()) {
+					return false;
+				}
+				previous = page.next();
+				action.accept(previous);
+				return true;
+			}
+		};
+		return StreamSupport.stream(pages, false);
+	}
 
 }
@@ -0,0 +1,57 @@
+package business.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * In-process index of the names of the persisted events.
+ * <p>
+ * Until it is warmed up the index knows nothing and callers must ask
+ * the database. Once warmed it is kept current by registering the name
+ * of every event committed by this process, so that name availability
+ * becomes a hash lookup.
+ */
+public class EventNameIndex {
+
+	private final Set<String> names = ConcurrentHashMap.newKeySet();
+	private volatile boolean warm;
+
+	public void warmUp(EntityManager em) {
+		TypedQuery<String> query = em.createNamedQuery(Event.GET_ALL_NAMES, String.class);
+		names.addAll(query.getResultList());
+		warm = true;
+	}
+
+	/**
+	 * Warms the index with names read elsewhere than in the database.
+	 */
+	public void warmUp(Collection<String> names) {
+		this.names.addAll(names);
+		warm = true;
+	}
+
+	/**
+	 * @return a live view of the names in the index
+	 */
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(names);
+	}
+
+	public boolean isWarm() {
+		return warm;
+	}
+
+	public boolean contains(String name) {
+		return names.contains(name);
+	}
+
+	public void add(String name) {
+		names.add(name);
+	}
+
+}
@@ -0,0 +1,72 @@
+package business.event;
+
+import java.util.Date;
+
+/**
+ * Read-only projection of an event, built directly by a query without
+ * loading the entity or its dates. The date search also sets the session
+ * that matched, so an event is listed once per matching session.
+ */
+public class EventSummary {
+
+	private final int id;
+	private final String name;
+	private final String eventType;
+	private final int empresa;
+	private final Date start;
+	private final Date end;
+
+	public EventSummary(int id, String name, String eventType, int empresa) {
+		this(id, name, eventType, empresa, null, null);
+	}
+
+	EventSummary(EventSummary event, Date start, Date end) {
+		this(event.id, event.name, event.eventType, event.empresa, start, end);
+	}
+
+	private EventSummary(int id, String name, String eventType, int empresa, Date start, Date end) {
+		this.id = id;
+		this.name = name;
+		this.eventType = eventType;
+		this.empresa = empresa;
+		this.start = start;
+		this.end = end;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public int getEmpresa() {
+		return empresa;
+	}
+
+	/**
+	 * @return the start of the matching session, or null if not from a date search
+	 */
+	public Date getStart() {
+		return start == null ? null : new Date(start.getTime());
+	}
+
+	/**
+	 * @return the end of the matching session, or null if not from a date search
+	 */
+	public Date getEnd() {
+		return end == null ? null : new Date(end.getTime());
+	}
+
+	@Override
+	public String toString() {
+		return "EventSummary [id=" + id + ", name=" + name + ", eventType=" + eventType + ", empresa=" + empresa
+				+ ", start=" + start + ", end=" + end + "]";
+	}
+
+}
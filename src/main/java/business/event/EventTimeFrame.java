@@ -8,29 +8,45 @@ import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
 
+/**
+ * One session of an event. It is immutable: the dates are copied in and out.
+ */
 @Embeddable
 public class EventTimeFrame {
 
-	@Temporal(TemporalType.TIMESTAMP) @Column(nullable = false)
+	// END is a reserved word in Derby
+	@Temporal(TemporalType.TIMESTAMP) @Column(name = "START_DATE", nullable = false, columnDefinition = "TIMESTAMP")
 	private Date start;
 	
-	@Temporal(TemporalType.TIMESTAMP) @Column(nullable = false)
+	@Temporal(TemporalType.TIMESTAMP) @Column(name = "END_DATE", nullable = false, columnDefinition = "TIMESTAMP")
 	private Date end;
 	
 	EventTimeFrame() {}
 	
 	public EventTimeFrame(Date inicio,Date fim) {
-		this.start = inicio;
-		this.end = fim;
+		this(inicio.getTime(), fim.getTime());
+	}
+	
+	public EventTimeFrame(long inicio, long fim) {
+		this.start = new Date(inicio);
+		this.end = new Date(fim);
 	}
 	
 	public Date getStart() {
-		return start;
+		return new Date(start.getTime());
 	}
 	
 	
 	public Date getEnd() {
-		return end;
+		return new Date(end.getTime());
+	}
+	
+	public long getStartMillis() {
+		return start.getTime();
+	}
+	
+	public long getEndMillis() {
+		return end.getTime();
 	}
 	
 	
@@ -0,0 +1,166 @@
+package business.event;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The time frames of an event, sorted by start and never overlapping.
+ * <p>
+ * The bounds are kept as epoch milliseconds in parallel arrays, so that a
+ * new time frame is placed and validated by binary search. Both bounds of
+ * a time frame are inclusive: two time frames may not share an instant.
+ */
+public class TimeFrames {
+
+	private long[] starts;
+	private long[] ends;
+	private int size;
+
+	public TimeFrames() {
+		this(8);
+	}
+
+	public TimeFrames(int capacity) {
+		this.starts = new long[Math.max(1, capacity)];
+		this.ends = new long[Math.max(1, capacity)];
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the time frames are not valid or overlap
+	 */
+	public static TimeFrames of(List<EventTimeFrame> timeFrames) {
+		TimeFrames result = new TimeFrames(timeFrames.size());
+		for (EventTimeFrame etf : timeFrames) {
+			result.add(etf.getStartMillis(), etf.getEndMillis());
+		}
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getStart(int i) {
+		checkIndex(i);
+		return starts[i];
+	}
+
+	public long getEnd(int i) {
+		checkIndex(i);
+		return ends[i];
+	}
+
+	public void add(Date inicio, Date fim) {
+		add(inicio.getTime(), fim.getTime());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the start is after the end or the
+	 * time frame overlaps one already added
+	 */
+	public void add(long start, long end) {
+		if(start > end) {
+			throw new IllegalArgumentException("The time frame ends before it starts");
+		}
+		if(overlaps(start, end)) {
+			throw new IllegalArgumentException("The time frame overlaps another one");
+		}
+		int pos = insertionPoint(start);
+		if(size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+		}
+		System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+		System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+		starts[pos] = start;
+		ends[pos] = end;
+		size++;
+	}
+
+	/**
+	 * @return whether some time frame shares an instant with {@code [start, end]}
+	 */
+	public boolean overlaps(long start, long end) {
+		int pos = insertionPoint(start);
+		return pos > 0 && ends[pos - 1] >= start || pos < size && starts[pos] <= end;
+	}
+
+	/**
+	 * @return a read-only view of the time frames, backed by this object
+	 */
+	public List<EventTimeFrame> asList() {
+		return new AbstractList<EventTimeFrame>() {
+			@Override
+			public EventTimeFrame get(int index) {
+				checkIndex(index);
+				return new EventTimeFrame(starts[index], ends[index]);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return a read-only view of the starts, backed by this object
+	 */
+	public List<Long> getStarts() {
+		return new LongView(true);
+	}
+
+	/**
+	 * @return a read-only view of the ends, backed by this object
+	 */
+	public List<Long> getEnds() {
+		return new LongView(false);
+	}
+
+	// first position whose start is greater than the given instant
+	private int insertionPoint(long instant) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(starts[mid] <= instant) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private void checkIndex(int i) {
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+	}
+
+	private class LongView extends AbstractList<Long> {
+		private final boolean start;
+
+		LongView(boolean start) {
+			this.start = start;
+		}
+
+		@Override
+		public Long get(int index) {
+			checkIndex(index);
+			return start ? starts[index] : ends[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
@@ -16,13 +16,18 @@ import business.SeatType;
 @NamedQueries({
 	@NamedQuery(name=EventType.FIND_BY_NAME, query="SELECT evt FROM EventType evt WHERE evt.name = :" + 
 			EventType.EVENT_TYPE_NAME),
-	@NamedQuery(name=EventType.GET_ALL_NAMES, query="SELECT evt.name FROM EventType evt")
+	@NamedQuery(name=EventType.GET_ALL_NAMES, query="SELECT evt.name FROM EventType evt"),
+	@NamedQuery(name=EventType.FIND_ALL, query="SELECT evt FROM EventType evt"),
+	@NamedQuery(name=EventType.LIST_SUMMARIES, query="SELECT NEW business.eventtype.EventTypeSummary(evt.name, evt.max_watch, " +
+			"evt.tipoDeLugares) FROM EventType evt ORDER BY evt.name")
 })
 public class EventType {
 
 	public static final String FIND_BY_NAME = "EventType.findByName";
 	public static final String EVENT_TYPE_NAME = "name";
-	public static final String GET_ALL_NAMES = "Event.getAllNames";
+	public static final String GET_ALL_NAMES = "EventType.getAllNames";
+	public static final String FIND_ALL = "EventType.findAll";
+	public static final String LIST_SUMMARIES = "EventType.listSummaries";
 
 	@Id @GeneratedValue(strategy = GenerationType.AUTO)
 	private int id;
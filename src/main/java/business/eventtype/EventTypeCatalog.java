@@ -1,37 +1,77 @@
 package business.eventtype;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
+import business.cache.ReferenceDataCache;
 import business.exceptions.EventTypeNotFoundException;
 
 public class EventTypeCatalog {
 
 	private EntityManager em;
+	private ReferenceDataCache cache;
 	
 	public EventTypeCatalog(EntityManager em) {
+		this(em, null);
+	}
+
+	public EventTypeCatalog(EntityManager em, ReferenceDataCache cache) {
 		this.em = em;
+		this.cache = cache;
 	}
 
 	public EventType getEventTypeByName(String eventType) throws EventTypeNotFoundException {
+		if(cache != null) {
+			EventType cached = cache.getEventType(eventType);
+			if(cached != null) {
+				return cached;
+			}
+		}
 		try {
 			TypedQuery<EventType> query = em.createNamedQuery(EventType.FIND_BY_NAME, EventType.class);
 			query.setParameter(EventType.EVENT_TYPE_NAME, eventType);
-			return query.getSingleResult();
+			EventType result = query.getSingleResult();
+			if(cache != null) {
+				cache.putEventType(result);
+			}
+			return result;
 		} catch (Exception e) {
 			throw new EventTypeNotFoundException("Space with name " + eventType + " does not exist", e);
 		}
 	}
 
-	public Iterable<EventType> getEventTypes() {
-		try {
-			TypedQuery<EventType> query = em.createNamedQuery(EventType.GET_ALL_NAMES, EventType.class);
-			return query.getResultList();
-		} catch (Exception e) {
-			return new ArrayList<>();
+	public List<EventType> getEventTypes() {
+		if(cache != null) {
+			List<EventType> cached = cache.getEventTypes();
+			if(cached != null) {
+				return cached;
+			}
+		}
+		TypedQuery<EventType> query = em.createNamedQuery(EventType.FIND_ALL, EventType.class);
+		List<EventType> result = query.getResultList();
+		if(cache != null) {
+			cache.putEventTypes(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Loads every event type into the cache.
+	 *
+	 * @return the number of event types loaded
+	 */
+	public int warmCache() {
+		if(cache == null) {
+			return 0;
+		}
+		List<EventType> all = em.createNamedQuery(EventType.FIND_ALL, EventType.class).getResultList();
+		for (EventType eventType : all) {
+			cache.putEventType(eventType);
 		}
+		cache.putEventTypes(all);
+		return all.size();
 	}
 
 }
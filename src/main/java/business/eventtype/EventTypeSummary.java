@@ -0,0 +1,38 @@
+package business.eventtype;
+
+import business.SeatType;
+
+/**
+ * Read-only projection of an event type, built directly by a query
+ * without loading the entity.
+ */
+public class EventTypeSummary {
+
+	private final String name;
+	private final int maxWatch;
+	private final SeatType tipoDeLugares;
+
+	public EventTypeSummary(String name, int maxWatch, SeatType tipoDeLugares) {
+		this.name = name;
+		this.maxWatch = maxWatch;
+		this.tipoDeLugares = tipoDeLugares;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxWatch() {
+		return maxWatch;
+	}
+
+	public SeatType getTipoDeLugares() {
+		return tipoDeLugares;
+	}
+
+	@Override
+	public String toString() {
+		return "EventTypeSummary [name=" + name + ", maxWatch=" + maxWatch + ", tipoDeLugares=" + tipoDeLugares + "]";
+	}
+
+}
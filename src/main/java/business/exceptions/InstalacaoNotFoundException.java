@@ -0,0 +1,14 @@
+package business.exceptions;
+
+public class InstalacaoNotFoundException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4170238756203940157L;
+
+	public InstalacaoNotFoundException(String string, Exception e) {
+		super(string, e);
+	}
+
+}
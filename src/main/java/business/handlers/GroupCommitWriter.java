@@ -0,0 +1,222 @@
+package business.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import business.empresa.Empresa;
+import business.event.Event;
+import business.event.EventCatalog;
+import business.event.EventNameIndex;
+import business.event.EventTimeFrame;
+import business.eventtype.EventType;
+import business.journal.ChangeJournal;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Writes validated events in the background, many per transaction.
+ * <p>
+ * The events wait in a bounded queue; a single thread persists them in
+ * batches of up to {@code batchSize} events, committed together as soon as
+ * the batch is full or {@code maxDelayMillis} after its first event. The
+ * future of an event completes once its transaction is committed, so a
+ * completed future means the event is durable.
+ * <p>
+ * Failure semantics: an event is rejected at once when the queue is full,
+ * the writer is stopped or another pending event has the same name. When
+ * a batch fails to commit, its events are written again one per
+ * transaction, so that only the events that fail on their own fail their
+ * futures, with an {@link ApplicationException}; an unexpected error fails
+ * the whole batch, not the writer. Events not yet written
+ * when the writer stops are written before it returns.
+ */
+public class GroupCommitWriter implements Runnable {
+
+	private final EntityManagerFactory emf;
+	private final EventNameIndex nameIndex;
+	private final ChangeJournal journal;
+	private final int batchSize;
+	private final long maxDelayMillis;
+	private final BlockingQueue<PendingEvent> pending;
+	private final Set<String> pendingNames = ConcurrentHashMap.newKeySet();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	public GroupCommitWriter(EntityManagerFactory emf, EventNameIndex nameIndex, int queueCapacity, int batchSize,
+			long maxDelayMillis) {
+		this(emf, nameIndex, null, queueCapacity, batchSize, maxDelayMillis);
+	}
+
+	/**
+	 * @param journal the journal of the events written, null when there is none
+	 */
+	public GroupCommitWriter(EntityManagerFactory emf, EventNameIndex nameIndex, ChangeJournal journal,
+			int queueCapacity, int batchSize, long maxDelayMillis) {
+		this.emf = emf;
+		this.nameIndex = nameIndex;
+		this.journal = journal;
+		this.batchSize = batchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.pending = new ArrayBlockingQueue<>(queueCapacity);
+		this.thread = new Thread(this, "event-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public CompletableFuture<Void> submit(String nome, EventType eventType, List<EventTimeFrame> timeFrames,
+			Empresa empresa) {
+		PendingEvent event = new PendingEvent(nome, eventType, timeFrames, empresa);
+		// with stop(), so that no event is queued once the writer is stopping
+		synchronized (this) {
+			if(!running) {
+				event.result.completeExceptionally(new ApplicationException("The event writer is stopped"));
+			} else if(!pendingNames.add(nome)) {
+				event.result.completeExceptionally(new ApplicationException("Nome " + nome + " not available."));
+			} else if(!pending.offer(event)) {
+				pendingNames.remove(nome);
+				event.result.completeExceptionally(new ApplicationException("Too many events waiting to be written"));
+			}
+		}
+		return event.result;
+	}
+
+	public int getPending() {
+		return pending.size();
+	}
+
+	@Override
+	public void run() {
+		List<PendingEvent> batch = new ArrayList<>(batchSize);
+		while (running || !pending.isEmpty()) {
+			try {
+				PendingEvent first = pending.poll(maxDelayMillis, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+				pending.drainTo(batch, batchSize - batch.size());
+				while (batch.size() < batchSize && running) {
+					long wait = deadline - System.nanoTime();
+					PendingEvent next = wait > 0 ? pending.poll(wait, TimeUnit.NANOSECONDS) : null;
+					if(next == null) {
+						break;
+					}
+					batch.add(next);
+					pending.drainTo(batch, batchSize - batch.size());
+				}
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (RuntimeException e) {
+				// fails only this batch, the writer goes on with the next one
+				for (PendingEvent event : batch) {
+					if(!event.result.isDone()) {
+						done(event, e);
+					}
+				}
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void write(List<PendingEvent> batch) {
+		EntityManager em = emf.createEntityManager();
+		EventCatalog eventCatalog = new EventCatalog(em, nameIndex);
+		try {
+			try {
+				em.getTransaction().begin();
+				for (PendingEvent e : batch) {
+					e.event = eventCatalog.addNewEvent(e.nome, e.eventType, e.timeFrames, e.empresa);
+				}
+				em.getTransaction().commit();
+				for (PendingEvent e : batch) {
+					done(e, null);
+				}
+				return;
+			} catch (Exception e) {
+				rollback(em);
+				em.clear();
+			}
+			for (PendingEvent e : batch) {
+				try {
+					em.getTransaction().begin();
+					e.event = eventCatalog.addNewEvent(e.nome, e.eventType, e.timeFrames, e.empresa);
+					em.getTransaction().commit();
+					done(e, null);
+				} catch (Exception ex) {
+					rollback(em);
+					done(e, ex);
+				} finally {
+					em.clear();
+				}
+			}
+		} finally {
+			em.close();
+		}
+	}
+
+	private void done(PendingEvent event, Exception failure) {
+		if(failure == null) {
+			nameIndex.add(event.nome);
+			if(journal != null) {
+				journal.eventCreated(event.event);
+			}
+		}
+		pendingNames.remove(event.nome);
+		if(failure == null) {
+			event.result.complete(null);
+		} else {
+			event.result.completeExceptionally(new ApplicationException("Not possible to create new event", failure));
+		}
+	}
+
+	private void rollback(EntityManager em) {
+		if(em.getTransaction().isActive()) {
+			em.getTransaction().rollback();
+		}
+	}
+
+	/**
+	 * Writes the pending events and stops the writer.
+	 */
+	public void stop() throws InterruptedException {
+		synchronized (this) {
+			running = false;
+		}
+		thread.join();
+		// nothing is queued after running is false, so only an interrupted writer leaves events behind
+		List<PendingEvent> left = new ArrayList<>();
+		pending.drainTo(left);
+		for (PendingEvent e : left) {
+			done(e, new ApplicationException("The event writer is stopped"));
+		}
+	}
+
+	private static class PendingEvent {
+		private final String nome;
+		private final EventType eventType;
+		private final List<EventTimeFrame> timeFrames;
+		private final Empresa empresa;
+		private final CompletableFuture<Void> result = new CompletableFuture<>();
+		private Event event;
+
+		PendingEvent(String nome, EventType eventType, List<EventTimeFrame> timeFrames, Empresa empresa) {
+			this.nome = nome;
+			this.eventType = eventType;
+			this.timeFrames = timeFrames;
+			this.empresa = empresa;
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package business.handlers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import business.cache.ReferenceDataCache;
+import business.empresa.Empresa;
+import business.empresa.EmpresaCatalog;
+import business.event.Event;
+import business.event.EventCatalog;
+import business.event.EventNameIndex;
+import business.event.TimeFrames;
+import business.eventtype.EventType;
+import business.eventtype.EventTypeCatalog;
+import business.journal.ChangeJournal;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Imports events in bulk from a text source with one event per line:
+ * <pre>
+ * nome;tipo;empresa;inicio/fim[;inicio/fim...]
+ * </pre>
+ * where dates are written as {@value #DATE_FORMAT}. Blank lines and lines
+ * starting with {@code #} are ignored.
+ * <p>
+ * Events are persisted in chunks, each in its own transaction, and the
+ * persistence context is cleared after every chunk. A record that fails
+ * validation, or that makes its chunk fail to commit, is reported in the
+ * {@link ImportResult} and the import goes on with the next one.
+ */
+public class ImportEventsHandler {
+
+	public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm";
+	private static final String FIELD_SEPARATOR = ";";
+	private static final String DATE_SEPARATOR = "/";
+
+	private EntityManagerFactory emf;
+	private EventNameIndex nameIndex;
+	private ReferenceDataCache referenceData;
+	private ChangeJournal journal;
+
+	public ImportEventsHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData) {
+		this(emf, nameIndex, referenceData, null);
+	}
+
+	/**
+	 * @param journal the journal of the events imported, null when there is none
+	 */
+	public ImportEventsHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData,
+			ChangeJournal journal) {
+		this.emf = emf;
+		this.nameIndex = nameIndex;
+		this.referenceData = referenceData;
+		this.journal = journal;
+	}
+
+	public ImportResult importEvents(BufferedReader source, int chunkSize) throws ApplicationException {
+		if(chunkSize < 1) {
+			throw new ApplicationException("Chunk size must be positive");
+		}
+		ImportResult result = new ImportResult();
+		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+		dateFormat.setLenient(false);
+		Set<String> namesInImport = new HashSet<>();
+		List<Record> chunk = new ArrayList<>(chunkSize);
+		EntityManager em = emf.createEntityManager();
+		EventTypeCatalog eventTypeCatalog = new EventTypeCatalog(em, referenceData);
+		EmpresaCatalog empresaCatalog = new EmpresaCatalog(em, referenceData);
+		EventCatalog eventCatalog = new EventCatalog(em, nameIndex);
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = source.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					Record r = parse(lineNumber, line, dateFormat, eventTypeCatalog, empresaCatalog);
+					if(!namesInImport.add(r.nome) || !eventCatalog.nameIsAvailable(r.nome)) {
+						throw new ApplicationException("Nome " + r.nome + " not available.");
+					}
+					chunk.add(r);
+				} catch (Exception e) {
+					result.failed(lineNumber, e.getMessage());
+				}
+				if(chunk.size() == chunkSize) {
+					persist(em, eventCatalog, chunk, result);
+				}
+			}
+			persist(em, eventCatalog, chunk, result);
+			return result;
+		} catch (IOException e) {
+			throw new ApplicationException("Error reading events to import", e);
+		} finally {
+			em.close();
+		}
+	}
+
+	private Record parse(int lineNumber, String line, SimpleDateFormat dateFormat,
+			EventTypeCatalog eventTypeCatalog, EmpresaCatalog empresaCatalog) throws Exception {
+		String[] fields = line.split(FIELD_SEPARATOR);
+		if(fields.length < 4) {
+			throw new ApplicationException("Expected nome;tipo;empresa;inicio/fim");
+		}
+		Record r = new Record(lineNumber, fields[0].trim());
+		r.eventType = eventTypeCatalog.getEventTypeByName(fields[1].trim());
+		r.empresa = empresaCatalog.getEmpresaById(Integer.parseInt(fields[2].trim()));
+		if(!r.empresa.haveLicense(r.eventType)) {
+			throw new ApplicationException("Company not allowed");
+		}
+		for (int i = 3; i < fields.length; i++) {
+			String[] dates = fields[i].split(DATE_SEPARATOR);
+			if(dates.length != 2) {
+				throw new ApplicationException("Expected inicio/fim in " + fields[i]);
+			}
+			NewEventHandler.addTimeFrame(r.timeFrames, date(dateFormat, dates[0]), date(dateFormat, dates[1]));
+		}
+		return r;
+	}
+
+	private Date date(SimpleDateFormat dateFormat, String text) throws ApplicationException {
+		try {
+			return dateFormat.parse(text.trim());
+		} catch (ParseException e) {
+			throw new ApplicationException("Invalid date " + text, e);
+		}
+	}
+
+	private void persist(EntityManager em, EventCatalog eventCatalog, List<Record> chunk, ImportResult result) {
+		if(chunk.isEmpty()) {
+			return;
+		}
+		try {
+			em.getTransaction().begin();
+			for (Record r : chunk) {
+				r.event = eventCatalog.addNewEvent(r.nome, r.eventType, r.timeFrames.asList(), r.empresa);
+			}
+			em.getTransaction().commit();
+			for (Record r : chunk) {
+				nameIndex.add(r.nome);
+				journal(r.event);
+			}
+			result.imported(chunk.size());
+		} catch (Exception e) {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.clear();
+			// find out which records made the chunk fail
+			for (Record r : chunk) {
+				persistOne(em, eventCatalog, r, result);
+			}
+		} finally {
+			em.clear();
+			chunk.clear();
+		}
+	}
+
+	private void persistOne(EntityManager em, EventCatalog eventCatalog, Record r, ImportResult result) {
+		try {
+			em.getTransaction().begin();
+			Event event = eventCatalog.addNewEvent(r.nome, r.eventType, r.timeFrames.asList(), r.empresa);
+			em.getTransaction().commit();
+			nameIndex.add(r.nome);
+			journal(event);
+			result.imported(1);
+		} catch (Exception e) {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			result.failed(r.line, "Not possible to create new event: " + e.getMessage());
+		} finally {
+			em.clear();
+		}
+	}
+
+	private void journal(Event event) {
+		if(journal != null) {
+			journal.eventCreated(event);
+		}
+	}
+
+	private static class Record {
+		private final int line;
+		private final String nome;
+		private EventType eventType;
+		private Empresa empresa;
+		private final TimeFrames timeFrames = new TimeFrames();
+		private Event event;
+
+		Record(int line, String nome) {
+			this.line = line;
+			this.nome = nome;
+		}
+	}
+
+}
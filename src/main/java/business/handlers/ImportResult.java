@@ -0,0 +1,28 @@
+package business.handlers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImportResult {
+
+	private int imported;
+	private List<String> failures = new ArrayList<>();
+
+	void imported(int count) {
+		imported += count;
+	}
+
+	void failed(int line, String message) {
+		failures.add("line " + line + ": " + message);
+	}
+
+	public int getImported() {
+		return imported;
+	}
+
+	public List<String> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+}
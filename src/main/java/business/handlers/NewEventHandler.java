@@ -3,147 +3,331 @@ package business.handlers;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 
+import business.cache.ReferenceDataCache;
 import business.empresa.Empresa;
 import business.empresa.EmpresaCatalog;
+import business.event.Event;
 import business.event.EventCatalog;
+import business.event.EventNameIndex;
 import business.event.EventTimeFrame;
+import business.event.TimeFrames;
 import business.eventtype.EventType;
 import business.eventtype.EventTypeCatalog;
+import business.eventtype.EventTypeSummary;
+import business.exceptions.EmpresaNotFoundException;
+import business.exceptions.EventTypeNotFoundException;
+import business.journal.ChangeJournal;
+import business.metrics.HandlerMetrics;
+import business.metrics.Operation;
 import facade.exceptions.ApplicationException;
 
+/**
+ * Use case handler for the creation of events.
+ * <p>
+ * The handler is stateless and thread-safe: the data of an event created
+ * step by step lives in a {@link NewEventSession}, and every operation
+ * uses its own entity manager.
+ */
 public class NewEventHandler {
-	private EntityManagerFactory emf;
-	private EventType eventType;
-	private Empresa empresa;
-	private String nome;
-	private List<EventTimeFrame> timeFrames;
+	private final EntityManagerFactory emf;
+	private final EventNameIndex nameIndex;
+	private final ReferenceDataCache referenceData;
+	private final HandlerMetrics metrics;
+	private final QueryHandler queries;
+	private final GroupCommitWriter writer;
+	private final ChangeJournal journal;
 
 	public NewEventHandler(EntityManagerFactory emf) {
+		this(emf, new EventNameIndex(), null);
+	}
+
+	public NewEventHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData) {
+		this(emf, nameIndex, referenceData, new HandlerMetrics());
+	}
+
+	public NewEventHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData,
+			HandlerMetrics metrics) {
+		this(emf, nameIndex, referenceData, metrics, null);
+	}
+
+	/**
+	 * @param writer the writer of the events created in write-behind mode,
+	 * null when the mode is not enabled
+	 */
+	public NewEventHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData,
+			HandlerMetrics metrics, GroupCommitWriter writer) {
+		this(emf, nameIndex, referenceData, metrics, writer, null);
+	}
+
+	/**
+	 * @param journal the journal of the events created, null when there is none
+	 */
+	public NewEventHandler(EntityManagerFactory emf, EventNameIndex nameIndex, ReferenceDataCache referenceData,
+			HandlerMetrics metrics, GroupCommitWriter writer, ChangeJournal journal) {
 		this.emf = emf;
+		this.nameIndex = nameIndex;
+		this.referenceData = referenceData;
+		this.metrics = metrics;
+		this.queries = new QueryHandler(emf, referenceData);
+		this.writer = writer;
+		this.journal = journal;
 	}
 
-	public Iterable<EventType> tryCreateEvent() throws ApplicationException {
-		EntityManager em = emf.createEntityManager();
-		EventTypeCatalog eventTypeCatalog = new EventTypeCatalog(em);
+	public NewEventSession newSession() {
+		return new NewEventSession();
+	}
+
+	public HandlerMetrics getMetrics() {
+		return metrics;
+	}
 
+	public List<EventTypeSummary> tryCreateEvent() throws ApplicationException {
+		long start = metrics.start(Operation.TRY_CREATE_EVENT);
 		try {
-			em.getTransaction().begin();
-			Iterable<EventType> eventTypes = eventTypeCatalog.getEventTypes();
-			em.getTransaction().commit();
-			return eventTypes;
-		}catch (Exception e) {
-			if(em.getTransaction().isActive())
-				em.getTransaction().rollback();
-			throw new ApplicationException("ERROR: Not possible to fetch event types.");
-		}
-		finally {
-			em.close();
+			return queries.listReference(EventType.LIST_SUMMARIES, EventTypeSummary.class);
+		} catch (ApplicationException e) {
+			throw new ApplicationException("ERROR: Not possible to fetch event types.", e);
+		} finally {
+			metrics.record(Operation.TRY_CREATE_EVENT, start);
 		}
 	}
 	
-	public void createEvent() throws ApplicationException {
+	public void createEvent(NewEventSession session) throws ApplicationException {
+		long start = metrics.start(Operation.CREATE_EVENT);
 		EntityManager em = emf.createEntityManager();
-		EventCatalog eventCatalog = new EventCatalog(em);
+		EventCatalog eventCatalog = new EventCatalog(em, nameIndex);
 		try {
-			em.getTransaction().begin();
+			begin(em);
+			String nome = session.getNome();
 			if(nome == null) {
 				throw new ApplicationException("No name defined");
 			}
-			if(empresa == null) {
+			if(session.getEmpresa() == null) {
 				throw new ApplicationException("No company defined");
 			}
-			if(timeFrames.isEmpty()) {
+			if(session.getTimeFrames().isEmpty()) {
 				throw new ApplicationException("No dates defined");
 			}
 			
-			eventCatalog.addNewEvent(nome,eventType,timeFrames,empresa);
-			em.getTransaction().commit();
+			Event event = eventCatalog.addNewEvent(nome,session.getEventType(),session.getTimeFrames().asList(),session.getEmpresa());
+			commit(em);
+			nameIndex.add(nome);
+			journal(event);
+			session.reset();
 		}catch (Exception e) {
-			if (em.getTransaction().isActive()) {
-				em.getTransaction().rollback();
-			}
+			rollback(em);
 			throw new ApplicationException("Not possible to create new event",e);
 		}finally {
 			em.close();
+			metrics.record(Operation.CREATE_EVENT, start);
 		}
 	}
 	
-	public void setTipo(String tipo) throws ApplicationException {
+	/**
+	 * Creates an event in a single transaction: the dates, the event type,
+	 * the availability of the name and the license of the company are all
+	 * checked with the same entity manager that persists the event.
+	 */
+	public void createEvent(String tipo, String nome, int empresa, List<EventTimeFrame> datas) throws ApplicationException {
+		long start = metrics.start(Operation.CREATE_EVENT_REQUEST);
+		try {
+			TimeFrames validated = checkRequest(nome, datas);
+			
+			EntityManager em = emf.createEntityManager();
+			EventCatalog eventCatalog = new EventCatalog(em, nameIndex);
+			try {
+				begin(em);
+				LicensedType licensed = checkLicense(em, eventCatalog, tipo, nome, empresa);
+				Event event = eventCatalog.addNewEvent(nome,licensed.type,validated.asList(),licensed.empresa);
+				commit(em);
+				nameIndex.add(nome);
+				journal(event);
+			}catch (Exception e) {
+				rollback(em);
+				throw new ApplicationException("Not possible to create new event",e);
+			}finally {
+				em.close();
+			}
+		} finally {
+			metrics.record(Operation.CREATE_EVENT_REQUEST, start);
+		}
+	}
+	
+	/**
+	 * Checks an event as {@link #createEvent(String, String, int, List)}
+	 * does, then hands it to the write-behind writer, which commits it
+	 * together with other events.
+	 * 
+	 * @return a future that completes once the event is committed, or fails
+	 * with an {@link ApplicationException}
+	 */
+	public CompletableFuture<Void> createEventWriteBehind(String tipo, String nome, int empresa, List<EventTimeFrame> datas) throws ApplicationException {
+		if(writer == null) {
+			throw new ApplicationException("Write-behind is not enabled");
+		}
+		long start = metrics.start(Operation.CREATE_EVENT_WRITE_BEHIND);
+		try {
+			TimeFrames validated = checkRequest(nome, datas);
+			
+			EntityManager em = emf.createEntityManager();
+			try {
+				LicensedType licensed = checkLicense(em, new EventCatalog(em, nameIndex), tipo, nome, empresa);
+				return writer.submit(nome, licensed.type, validated.asList(), licensed.empresa);
+			}catch (Exception e) {
+				throw new ApplicationException("Not possible to create new event",e);
+			}finally {
+				em.close();
+			}
+		} finally {
+			metrics.record(Operation.CREATE_EVENT_WRITE_BEHIND, start);
+		}
+	}
+	
+	/**
+	 * Looks up the event type and the company of a new event, and checks
+	 * that its name is available and that the company is licensed for the type.
+	 */
+	private LicensedType checkLicense(EntityManager em, EventCatalog eventCatalog, String tipo, String nome,
+			int empresa) throws ApplicationException, EventTypeNotFoundException, EmpresaNotFoundException {
+		EventType type = new EventTypeCatalog(em, referenceData).getEventTypeByName(tipo);
+		if(!eventCatalog.nameIsAvailable(nome)) {
+			throw new ApplicationException("Nome "+nome+" not available.");
+		}
+		Empresa e = new EmpresaCatalog(em, referenceData).getEmpresaById(empresa);
+		if(!e.haveLicense(type)) {
+			throw new ApplicationException("Company not allowed");
+		}
+		return new LicensedType(type, e);
+	}
+	
+	private TimeFrames checkRequest(String nome, List<EventTimeFrame> datas) throws ApplicationException {
+		TimeFrames validated = new TimeFrames(datas.size());
+		try {
+			for (EventTimeFrame etf : datas) {
+				validated.add(etf.getStartMillis(), etf.getEndMillis());
+			}
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to add new dates", e);
+		}
+		if(nome == null) {
+			throw new ApplicationException("No name defined");
+		}
+		if(validated.isEmpty()) {
+			throw new ApplicationException("No dates defined");
+		}
+		return validated;
+	}
+	
+	public void setTipo(NewEventSession session, String tipo) throws ApplicationException {
+		long start = metrics.start(Operation.SET_TIPO);
 		EntityManager em = emf.createEntityManager();
-		EventTypeCatalog eventTypeCatalog = new EventTypeCatalog(em);
+		EventTypeCatalog eventTypeCatalog = new EventTypeCatalog(em, referenceData);
 		try {
-			em.getTransaction().begin();
-			eventType = eventTypeCatalog.getEventTypeByName(tipo);
-			em.getTransaction().commit();
+			begin(em);
+			session.setEventType(eventTypeCatalog.getEventTypeByName(tipo));
+			commit(em);
 		} catch (Exception e) {
-			if (em.getTransaction().isActive()) {
-				em.getTransaction().rollback();
-			}
+			rollback(em);
 			throw new ApplicationException("Event type "+tipo+" not found.", e);
 		} finally {
 			em.close();
+			metrics.record(Operation.SET_TIPO, start);
 		}
 	}
 	
-	public void setNome(String nome) throws ApplicationException {
+	public void setNome(NewEventSession session, String nome) throws ApplicationException {
+		long start = metrics.start(Operation.SET_NOME);
 		EntityManager em = emf.createEntityManager();
-		EventCatalog eventCatalog = new EventCatalog(em);
+		EventCatalog eventCatalog = new EventCatalog(em, nameIndex);
 		try {
-			em.getTransaction().begin();
+			begin(em);
 			if(!eventCatalog.nameIsAvailable(nome)) {
 				throw new ApplicationException("");
 			}
-			em.getTransaction().commit();
-			this.nome = nome;
+			commit(em);
+			session.setNome(nome);
 		} catch (Exception e) {
-			if (em.getTransaction().isActive()) {
-				em.getTransaction().rollback();
-			}
+			rollback(em);
 			throw new ApplicationException("Nome "+nome+" not available.", e);
 		} finally {
 			em.close();
+			metrics.record(Operation.SET_NOME, start);
 		}
 	}
 	
 	
-	public void addDate(Date inicio,Date fim) throws ApplicationException {
+	public void addDate(NewEventSession session, Date inicio,Date fim) throws ApplicationException {
+		long start = metrics.start(Operation.ADD_DATE);
 		try {
-			if(inicio.after(fim)) {
-				throw new ApplicationException("");
-			}
-			for (EventTimeFrame etf : timeFrames) {
-				if(!inicio.after(etf.getEnd())){
-					throw new ApplicationException("");
-				}
-			}
-			timeFrames.add(new EventTimeFrame(inicio, fim));
+			addTimeFrame(session.getTimeFrames(), inicio, fim);
 		}catch (Exception e) {
 			throw new ApplicationException("Not possible to add new dates");
-		}	
+		} finally {
+			metrics.record(Operation.ADD_DATE, start);
+		}
+	}
+	
+	static void addTimeFrame(TimeFrames timeFrames, Date inicio, Date fim) throws ApplicationException {
+		try {
+			timeFrames.add(inicio, fim);
+		} catch (IllegalArgumentException e) {
+			throw new ApplicationException(e.getMessage(), e);
+		}
 	}
 	
-	public void setEmpresa(int empresa) throws ApplicationException {
+	public void setEmpresa(NewEventSession session, int empresa) throws ApplicationException {
+		long start = metrics.start(Operation.SET_EMPRESA);
 		EntityManager em = emf.createEntityManager();
-		EmpresaCatalog empresaCatalog = new EmpresaCatalog(em);
+		EmpresaCatalog empresaCatalog = new EmpresaCatalog(em, referenceData);
 		try {
-			em.getTransaction().begin();
+			begin(em);
 			Empresa e = empresaCatalog.getEmpresaById(empresa);
-			if(!e.haveLicense(eventType)) {
+			if(!e.haveLicense(session.getEventType())) {
 				throw new ApplicationException("Company not allowed");
 			}
-			this.empresa = e;
-			em.getTransaction().commit();
+			session.setEmpresa(e);
+			commit(em);
 		} catch (Exception e) {
-			if (em.getTransaction().isActive()) {
-				em.getTransaction().rollback();
-			}
+			rollback(em);
 			throw new ApplicationException("Company not found or not allowed for that event.", e);
 		} finally {
 			em.close();
+			metrics.record(Operation.SET_EMPRESA, start);
+		}
+	}
+	
+	private void journal(Event event) {
+		if(journal != null) {
+			journal.eventCreated(event);
+		}
+	}
+	
+	private static class LicensedType {
+		private final EventType type;
+		private final Empresa empresa;
+		
+		LicensedType(EventType type, Empresa empresa) {
+			this.type = type;
+			this.empresa = empresa;
+		}
+	}
+	
+	private void begin(EntityManager em) {
+		em.getTransaction().begin();
+	}
+	
+	private void commit(EntityManager em) {
+		em.getTransaction().commit();
+	}
+	
+	private void rollback(EntityManager em) {
+		if (em.getTransaction().isActive()) {
+			em.getTransaction().rollback();
 		}
 	}
 }
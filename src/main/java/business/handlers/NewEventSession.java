@@ -0,0 +1,58 @@
+package business.handlers;
+
+import business.empresa.Empresa;
+import business.event.TimeFrames;
+import business.eventtype.EventType;
+
+/**
+ * The state of one event being created step by step.
+ * <p>
+ * A session belongs to a single client and is not meant to be shared
+ * between threads; the {@link NewEventHandler} that updates it keeps no
+ * state of its own and can serve any number of sessions concurrently.
+ */
+public class NewEventSession {
+
+	private EventType eventType;
+	private Empresa empresa;
+	private String nome;
+	private TimeFrames timeFrames = new TimeFrames();
+
+	NewEventSession() {}
+
+	EventType getEventType() {
+		return eventType;
+	}
+
+	void setEventType(EventType eventType) {
+		this.eventType = eventType;
+	}
+
+	Empresa getEmpresa() {
+		return empresa;
+	}
+
+	void setEmpresa(Empresa empresa) {
+		this.empresa = empresa;
+	}
+
+	String getNome() {
+		return nome;
+	}
+
+	void setNome(String nome) {
+		this.nome = nome;
+	}
+
+	TimeFrames getTimeFrames() {
+		return timeFrames;
+	}
+
+	void reset() {
+		eventType = null;
+		empresa = null;
+		nome = null;
+		timeFrames = new TimeFrames();
+	}
+
+}
@@ -0,0 +1,110 @@
+package business.handlers;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+import business.cache.ReferenceDataCache;
+import business.event.Event;
+import business.event.EventCatalog;
+import business.event.EventSummary;
+import facade.exceptions.ApplicationException;
+
+/**
+ * The read-only queries used by every listing of the services.
+ * <p>
+ * The queries are named queries with constructor expressions, so they
+ * build read-only projections directly: no entity is created, tracked by
+ * the persistence context or checked for changes. They run without a
+ * transaction, each in its own entity manager.
+ */
+public class QueryHandler {
+
+	// keeps the entities that a query may still return out of the persistence context
+	private static final String READ_ONLY = "eclipselink.read-only";
+
+	private final EntityManagerFactory emf;
+	private final ReferenceDataCache referenceData;
+
+	public QueryHandler(EntityManagerFactory emf) {
+		this(emf, null);
+	}
+
+	public QueryHandler(EntityManagerFactory emf, ReferenceDataCache referenceData) {
+		this.emf = emf;
+		this.referenceData = referenceData;
+	}
+
+	public <T> List<T> list(String query, Class<T> type) throws ApplicationException {
+		return page(query, type, Collections.<String, Object>emptyMap(), 0, Integer.MAX_VALUE);
+	}
+
+	public <T> List<T> list(String query, Class<T> type, Map<String, ?> parameters) throws ApplicationException {
+		return page(query, type, parameters, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Like {@link #list(String, Class)}, for reference data: the result is
+	 * kept in the reference data cache, when there is one.
+	 */
+	public <T> List<T> listReference(String query, Class<T> type) throws ApplicationException {
+		if(referenceData != null) {
+			@SuppressWarnings("unchecked")
+			List<T> cached = (List<T>) referenceData.getListing(query);
+			if(cached != null) {
+				return cached;
+			}
+		}
+		List<T> result = list(query, type);
+		if(referenceData != null) {
+			referenceData.putListing(query, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Runs a page of the date search of
+	 * {@link EventCatalog#findEventsBetween(Date, Date, EventSummary, int)}.
+	 * 
+	 * @param after the last session of the previous page, null for the first page
+	 */
+	public List<EventSummary> findEventsBetween(Date from, Date to, EventSummary after, int pageSize)
+			throws ApplicationException {
+		EntityManager em = emf.createEntityManager();
+		try {
+			return Collections.unmodifiableList(new EventCatalog(em).findEventsBetween(from, to, after, pageSize));
+		} catch (Exception e) {
+			throw new ApplicationException("ERROR: Not possible to run query " + Event.FIND_BETWEEN + ".", e);
+		} finally {
+			em.close();
+		}
+	}
+
+	/**
+	 * @return at most {@code max} results of the query, from position {@code first}
+	 */
+	public <T> List<T> page(String query, Class<T> type, Map<String, ?> parameters, int first, int max)
+			throws ApplicationException {
+		EntityManager em = emf.createEntityManager();
+		try {
+			TypedQuery<T> q = em.createNamedQuery(query, type);
+			q.setHint(READ_ONLY, Boolean.TRUE);
+			for (Map.Entry<String, ?> p : parameters.entrySet()) {
+				q.setParameter(p.getKey(), p.getValue());
+			}
+			q.setFirstResult(first);
+			q.setMaxResults(max);
+			return Collections.unmodifiableList(q.getResultList());
+		} catch (Exception e) {
+			throw new ApplicationException("ERROR: Not possible to run query " + query + ".", e);
+		} finally {
+			em.close();
+		}
+	}
+
+}
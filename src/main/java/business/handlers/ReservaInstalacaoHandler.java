@@ -0,0 +1,221 @@
+package business.handlers;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
+
+import business.instalacao.Instalacao;
+import business.instalacao.InstalacaoCatalog;
+import business.instalacao.OccupancyMap;
+import business.journal.ChangeJournal;
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.reservainstalacao.ReservaDeInstalacaoCatalog;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Use case handler for the booking of installations.
+ * <p>
+ * Checking that an installation is free and inserting the reservation
+ * is made atomic in two ways. Within this application, the bookings of an
+ * installation are serialized by a lock striped on its id, so they never
+ * conflict and bookings of other installations run in parallel. Against
+ * other processes, every booking increments the version of the
+ * installation, so of two concurrent bookings only one commits; the other
+ * one is retried with exponential backoff, up to a bounded number of
+ * attempts, and then sees the first reservation.
+ * <p>
+ * When given an {@link OccupancyMap}, the handler marks there the days of
+ * every reservation it commits, and answers from it which installations
+ * are free for a period. The database stays the source of truth: the map
+ * can be rebuilt from it at any time, and a reservation that cannot be
+ * marked leaves the map stale, not the booking failed. When given a {@link ChangeJournal},
+ * the handler also appends every reservation it commits.
+ */
+public class ReservaInstalacaoHandler {
+
+	private static final long MAX_BACKOFF_MILLIS = 100;
+	private static final int STRIPES = 64;
+
+	private final EntityManagerFactory emf;
+	private final Lock[] stripes = new Lock[STRIPES];
+	private final int maxAttempts;
+	private final OccupancyMap occupancy;
+	private final ChangeJournal journal;
+
+	public ReservaInstalacaoHandler(EntityManagerFactory emf, int maxAttempts) {
+		this(emf, maxAttempts, null);
+	}
+
+	public ReservaInstalacaoHandler(EntityManagerFactory emf, int maxAttempts, OccupancyMap occupancy) {
+		this(emf, maxAttempts, occupancy, null);
+	}
+
+	public ReservaInstalacaoHandler(EntityManagerFactory emf, int maxAttempts, OccupancyMap occupancy,
+			ChangeJournal journal) {
+		this.emf = emf;
+		this.maxAttempts = maxAttempts;
+		this.occupancy = occupancy;
+		this.journal = journal;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	public ReservaDeInstalacao reservar(int instalacao, Date inicio, Date fim) throws ApplicationException {
+		if(inicio == null || fim == null || inicio.after(fim)) {
+			throw new ApplicationException("Not possible to add new dates");
+		}
+		Lock stripe = stripes[Math.floorMod(instalacao, STRIPES)];
+		stripe.lock();
+		try {
+			return book(instalacao, inicio, fim);
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	private ReservaDeInstalacao book(int instalacao, Date inicio, Date fim) throws ApplicationException {
+		for (int attempt = 1; ; attempt++) {
+			ReservaDeInstalacao reserva = null;
+			EntityManager em = emf.createEntityManager();
+			InstalacaoCatalog instalacaoCatalog = new InstalacaoCatalog(em);
+			ReservaDeInstalacaoCatalog reservaCatalog = new ReservaDeInstalacaoCatalog(em);
+			try {
+				em.getTransaction().begin();
+				Instalacao i = instalacaoCatalog.getInstalacaoById(instalacao, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+				// writes the new version now, so that a concurrent booking fails here and not in the query below
+				em.flush();
+				if(!reservaCatalog.isAvailable(i, inicio, fim)) {
+					throw new ApplicationException("Installation not available on those dates");
+				}
+				ReservaDeInstalacao added = reservaCatalog.addNewReserva(i, inicio, fim);
+				// keeps both sides of the association, and the shared cache, up to date
+				i.addReserva(added);
+				em.getTransaction().commit();
+				reserva = added;
+			} catch (Exception e) {
+				if (em.getTransaction().isActive()) {
+					em.getTransaction().rollback();
+				}
+				if(!isConcurrentBooking(e)) {
+					throw new ApplicationException("Not possible to book installation " + instalacao, e);
+				}
+				if(attempt >= maxAttempts) {
+					if(!isAvailable(instalacao, inicio, fim)) {
+						throw new ApplicationException("Installation not available on those dates", e);
+					}
+					throw new ApplicationException("Installation " + instalacao + " is being booked concurrently, try again", e);
+				}
+			} finally {
+				em.close();
+			}
+			if(reserva != null) {
+				if(journal != null) {
+					journal.reservaCreated(reserva);
+				}
+				markOccupied(reserva);
+				return reserva;
+			}
+			backoff(attempt);
+		}
+	}
+
+	// whether the other process that won the conflict took the dates
+	private boolean isAvailable(int instalacao, Date inicio, Date fim) throws ApplicationException {
+		EntityManager em = emf.createEntityManager();
+		try {
+			Instalacao i = new InstalacaoCatalog(em).getInstalacaoById(instalacao);
+			return new ReservaDeInstalacaoCatalog(em).isAvailable(i, inicio, fim);
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to book installation " + instalacao, e);
+		} finally {
+			em.close();
+		}
+	}
+
+	/**
+	 * @return the ids of the installations with no reservation from
+	 * {@code inicio} to {@code fim}, both days included; the installations
+	 * are read from the database, so those added since the map was built
+	 * are not missed
+	 */
+	public List<Integer> findFree(Date inicio, Date fim) throws ApplicationException {
+		if(occupancy == null) {
+			throw new ApplicationException("Occupancy map not available");
+		}
+		if(inicio.after(fim)) {
+			throw new ApplicationException("Not possible to add new dates");
+		}
+		EntityManager em = emf.createEntityManager();
+		try {
+			return occupancy.findFree(new InstalacaoCatalog(em).getAllIds(), inicio, fim);
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			throw new ApplicationException(e.getMessage(), e);
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to find the free installations", e);
+		} finally {
+			em.close();
+		}
+	}
+
+	/**
+	 * Recreates the occupancy map from the reservations in the database.
+	 *
+	 * @return the number of reservations read
+	 */
+	public int rebuildOccupancy() throws ApplicationException {
+		if(occupancy == null) {
+			throw new ApplicationException("Occupancy map not available");
+		}
+		EntityManager em = emf.createEntityManager();
+		try {
+			return occupancy.rebuild(em);
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to rebuild the occupancy map", e);
+		} finally {
+			em.close();
+		}
+	}
+
+	// the reservation is committed, so a failure only leaves the map to be rebuilt
+	private void markOccupied(ReservaDeInstalacao reserva) {
+		if(occupancy == null) {
+			return;
+		}
+		try {
+			occupancy.add(reserva.getId(), reserva.getInstalacao().getId(), reserva.getInicio(), reserva.getFim());
+		} catch (IOException | RuntimeException e) {
+			occupancy.invalidate();
+		}
+	}
+
+	// only a conflict on the version of the installation is worth retrying
+	private static boolean isConcurrentBooking(Exception e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if(cause instanceof OptimisticLockException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// a random pause, of up to twice as long after every attempt
+	private void backoff(int attempt) throws ApplicationException {
+		long max = Math.min(MAX_BACKOFF_MILLIS, 1L << Math.min(attempt, 20));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(max + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApplicationException("Interrupted while booking", e);
+		}
+	}
+
+}
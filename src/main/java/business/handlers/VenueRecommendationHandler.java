@@ -0,0 +1,102 @@
+package business.handlers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+import business.cache.ReferenceDataCache;
+import business.event.EventTimeFrame;
+import business.event.TimeFrames;
+import business.eventtype.EventType;
+import business.eventtype.EventTypeCatalog;
+import business.instalacao.Instalacao;
+import business.instalacao.VenueMatch;
+import business.instalacao.VenueMatcher;
+import business.reservainstalacao.ReservaDeInstalacao;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Use case handler for the recommendation of installations to an event.
+ * <p>
+ * The installations with a compatible event type are read in one query and
+ * their reservations within the span of the event in another, and they are
+ * checked in parallel against the sessions of the event by a {@link VenueMatcher}.
+ */
+public class VenueRecommendationHandler {
+
+	private final EntityManagerFactory emf;
+	private final ReferenceDataCache referenceData;
+	private final VenueMatcher matcher;
+
+	public VenueRecommendationHandler(EntityManagerFactory emf, ReferenceDataCache referenceData, ForkJoinPool pool) {
+		this.emf = emf;
+		this.referenceData = referenceData;
+		this.matcher = new VenueMatcher(pool);
+	}
+
+	/**
+	 * @return at most {@code max} installations free for every session, the
+	 * closest fit to the capacity of the event type first
+	 */
+	public List<VenueMatch> recomendar(String tipo, List<EventTimeFrame> datas, int max) throws ApplicationException {
+		TimeFrames sessions;
+		try {
+			sessions = TimeFrames.of(datas);
+		} catch (IllegalArgumentException e) {
+			throw new ApplicationException("Not possible to add new dates", e);
+		}
+		if(sessions.isEmpty()) {
+			throw new ApplicationException("No dates defined");
+		}
+		EntityManager em = emf.createEntityManager();
+		try {
+			EventType eventType = new EventTypeCatalog(em, referenceData).getEventTypeByName(tipo);
+			TypedQuery<Instalacao> query = em.createNamedQuery(Instalacao.FIND_COMPATIBLE, Instalacao.class);
+			query.setParameter(Instalacao.LUGARES, eventType.getTipoDeLugares());
+			query.setParameter(Instalacao.CAPACIDADE, eventType.getMax_watch());
+			List<Instalacao> candidates = query.getResultList();
+			if(candidates.isEmpty()) {
+				return new ArrayList<>();
+			}
+			loadReservas(em, candidates, sessions);
+			List<VenueMatch> result = matcher.match(candidates, eventType, sessions);
+			return result.size() > max ? result.subList(0, max) : result;
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to recommend installations", e);
+		} finally {
+			em.close();
+		}
+	}
+
+	/**
+	 * Gives each candidate only its reservations within the span of the
+	 * sessions, all read by a single query. The candidates are detached
+	 * first, so the partial lists are never taken for changes.
+	 */
+	private static void loadReservas(EntityManager em, List<Instalacao> candidates, TimeFrames sessions) {
+		em.clear();
+		TypedQuery<ReservaDeInstalacao> query = em.createNamedQuery(ReservaDeInstalacao.FIND_IN_PERIOD,
+				ReservaDeInstalacao.class);
+		query.setParameter(ReservaDeInstalacao.INSTALACOES, candidates);
+		query.setParameter(ReservaDeInstalacao.INICIO, new Date(sessions.getStart(0)));
+		query.setParameter(ReservaDeInstalacao.FIM, new Date(sessions.getEnd(sessions.size() - 1)));
+		Map<Integer, List<ReservaDeInstalacao>> reservas = new HashMap<>();
+		for (Instalacao i : candidates) {
+			reservas.put(i.getId(), new ArrayList<ReservaDeInstalacao>());
+		}
+		for (ReservaDeInstalacao r : query.getResultList()) {
+			reservas.get(r.getInstalacao().getId()).add(r);
+		}
+		for (Instalacao i : candidates) {
+			i.setReservas(reservas.get(i.getId()));
+		}
+	}
+
+}
@@ -6,28 +6,59 @@ import java.util.List;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
 import business.eventtype.EventType;
 import business.reservainstalacao.ReservaDeInstalacao;
 
+@Entity
+@NamedQueries({
+	@NamedQuery(name=Instalacao.FIND_BY_ID, query="SELECT i FROM Instalacao i WHERE i.id = :" + 
+			Instalacao.ID),
+	@NamedQuery(name=Instalacao.FIND_ALL_IDS, query="SELECT i.id FROM Instalacao i"),
+	@NamedQuery(name=Instalacao.FIND_COMPATIBLE, query="SELECT i FROM Instalacao i " +
+			"WHERE i.eventType.tipoDeLugares = :" + Instalacao.LUGARES + " AND i.eventType.max_watch >= :" +
+			Instalacao.CAPACIDADE)
+})
 public class Instalacao {
 
+	public static final String FIND_BY_ID = "Instalacao.findById";
+	public static final String FIND_ALL_IDS = "Instalacao.findAllIds";
+	public static final String FIND_COMPATIBLE = "Instalacao.findCompatible";
+	public static final String LUGARES = "lugares";
+	public static final String CAPACIDADE = "capacidade";
+	public static final String ID = "id";
+
 	@Id @GeneratedValue(strategy = GenerationType.AUTO)
 	private int id;
 	
+	// incremented by every booking, so that concurrent bookings conflict
+	@Version
+	private int version;
+	
 	@Column(nullable = false, unique = true)
 	private String nome;
 	
-	@Column(nullable = false)
+	@ManyToOne
+	@JoinColumn(nullable = false)
 	private EventType eventType;
 
 	@OneToMany(cascade = CascadeType.ALL,mappedBy="instalacao")
 	private List<ReservaDeInstalacao> reservas;
 	
+	@Transient
+	private ReservationIndex reservationIndex;
+	
 	Instalacao(){}
 	
 	public Instalacao(String nome,EventType eventType) {
@@ -40,6 +71,10 @@ public class Instalacao {
 		return reservas;
 	}
 	
+	public int getId() {
+		return id;
+	}
+	
 	public String getNome() {
 		return nome;
 	}
@@ -50,15 +85,37 @@ public class Instalacao {
 	
 	public void setReservas(List<ReservaDeInstalacao> reservas) {
 		this.reservas = reservas;
+		this.reservationIndex = null;
+	}
+	
+	public void addReserva(ReservaDeInstalacao reserva) {
+		reservas.add(reserva);
+		if(reservationIndex != null) {
+			reservationIndex.add(reserva);
+		}
 	}
 	
 	public boolean availableOn(Date inicio,Date fim) {
-		for (ReservaDeInstalacao reservaDeInstalacao : reservas) {
-			if(reservaDeInstalacao.isOverlapedBy(inicio,fim)) {
-				return false;
-			}
+		return getReservationIndex().availableOn(inicio, fim);
+	}
+	
+	public boolean availableOn(long inicio,long fim) {
+		return getReservationIndex().availableOn(inicio, fim);
+	}
+	
+	public List<ReservaDeInstalacao> findConflicts(Date inicio,Date fim) {
+		return getReservationIndex().findConflicts(inicio, fim);
+	}
+	
+	public Date nextFreeSlot(Date after,long length) {
+		return getReservationIndex().nextFreeSlot(after, length);
+	}
+	
+	private ReservationIndex getReservationIndex() {
+		if(reservationIndex == null) {
+			reservationIndex = new ReservationIndex(reservas);
 		}
-		return true;
+		return reservationIndex;
 	}
 	
 }
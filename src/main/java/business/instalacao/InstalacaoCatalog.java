@@ -0,0 +1,38 @@
+package business.instalacao;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+
+import business.exceptions.InstalacaoNotFoundException;
+
+public class InstalacaoCatalog {
+
+	private EntityManager em;
+
+	public InstalacaoCatalog(EntityManager em) {
+		this.em = em;
+	}
+
+	public Instalacao getInstalacaoById(int id) throws InstalacaoNotFoundException {
+		return getInstalacaoById(id, LockModeType.NONE);
+	}
+
+	public Instalacao getInstalacaoById(int id, LockModeType lockMode) throws InstalacaoNotFoundException {
+		try {
+			TypedQuery<Instalacao> query = em.createNamedQuery(Instalacao.FIND_BY_ID, Instalacao.class);
+			query.setParameter(Instalacao.ID, id);
+			query.setLockMode(lockMode);
+			return query.getSingleResult();
+		} catch (Exception e) {
+			throw new InstalacaoNotFoundException("Installation with id " + id + " does not exist", e);
+		}
+	}
+
+	public List<Integer> getAllIds() {
+		return em.createNamedQuery(Instalacao.FIND_ALL_IDS, Integer.class).getResultList();
+	}
+
+}
@@ -0,0 +1,472 @@
+package business.instalacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
+
+import business.reservainstalacao.ReservaDeInstalacao;
+
+/**
+ * The days on which each installation is reserved, one bit per day over a
+ * fixed number of days from an origin, kept in a memory-mapped file so
+ * that it survives restarts.
+ * <p>
+ * The reservations are stored with day precision, so a day is either
+ * free or taken. Checking a period reads only the words of the bitmap it
+ * covers, and the search of the installations free for a period does so
+ * for every installation. {@link #rollTo(Date, EntityManager)} moves the
+ * origin forward, dropping the days before it and reading from the
+ * database the reservations of the days it adds, and
+ * {@link #rebuild(EntityManager)} recreates the bitmaps from the database.
+ * <p>
+ * The header keeps the number of reservations added and the greatest id
+ * among them, so that {@link #isCurrent(EntityManager)} tells a map that
+ * missed some reservations, for instance made while the application was
+ * down or by another program, from one that matches the database. A map
+ * that failed to add a reservation is stale: it refuses to answer until it
+ * is rebuilt, and it is not current at the next start either.
+ * <p>
+ * The file starts with a header (magic, format, origin as epoch day, days,
+ * words per bitmap, capacity, installations, reservations, greatest
+ * reservation id), followed by one record per installation: its id, padded
+ * to 8 bytes, and its bitmap.
+ */
+public class OccupancyMap implements Closeable {
+
+	private static final int MAGIC = 0x4F434355;
+	private static final int FORMAT = 1;
+	private static final int HEADER = 64;
+	private static final int ORIGIN = 8;
+	private static final int DAYS = 16;
+	private static final int WORDS = 20;
+	private static final int CAPACITY = 24;
+	private static final int USED = 28;
+	private static final int RESERVATIONS = 32;
+	private static final int LAST_RESERVATION = 40;
+	// the reservations of a map that failed to add one
+	private static final long STALE = -1;
+
+	private final FileChannel channel;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Integer> slots = new HashMap<>();
+	private final boolean created;
+	private MappedByteBuffer buffer;
+	private long origin;
+	private int days;
+	private int words;
+	private int capacity;
+	private volatile boolean stale;
+
+	private OccupancyMap(FileChannel channel, boolean created) {
+		this.channel = channel;
+		this.created = created;
+	}
+
+	/**
+	 * Opens the map in the given file, or creates it there, empty, with the
+	 * given origin, number of days and room for {@code capacity}
+	 * installations (it grows as needed).
+	 */
+	public static OccupancyMap open(Path file, Date origin, int days, int capacity) throws IOException {
+		boolean exists = Files.exists(file) && Files.size(file) >= HEADER;
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		OccupancyMap map = new OccupancyMap(channel, !exists);
+		try {
+			if(exists) {
+				map.load();
+			} else {
+				map.create(toEpochDay(origin.getTime()), days, capacity);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return map;
+	}
+
+	private void create(long originDay, int days, int capacity) throws IOException {
+		this.origin = originDay;
+		this.days = days;
+		this.words = (days + 63) >>> 6;
+		this.capacity = capacity;
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(capacity));
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT);
+		buffer.putLong(ORIGIN, origin);
+		buffer.putInt(DAYS, days);
+		buffer.putInt(WORDS, words);
+		buffer.putInt(CAPACITY, capacity);
+		buffer.putInt(USED, 0);
+		buffer.putLong(RESERVATIONS, 0);
+		buffer.putInt(LAST_RESERVATION, 0);
+	}
+
+	private void load() throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+			throw new IOException("Not an occupancy map");
+		}
+		origin = buffer.getLong(ORIGIN);
+		days = buffer.getInt(DAYS);
+		words = buffer.getInt(WORDS);
+		capacity = buffer.getInt(CAPACITY);
+		stale = buffer.getLong(RESERVATIONS) == STALE;
+		int used = buffer.getInt(USED);
+		for (int slot = 0; slot < used; slot++) {
+			slots.put(buffer.getInt(record(slot)), slot);
+		}
+	}
+
+	/**
+	 * @return whether the file did not exist and the map starts empty
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+
+	public Date getOrigin() {
+		return toDate(origin);
+	}
+
+	public int getDays() {
+		return days;
+	}
+
+	/**
+	 * @return whether the map holds as many reservations as the database,
+	 * up to the same greatest id, and has not failed to add one
+	 */
+	public boolean isCurrent(EntityManager em) {
+		Object[] highWaterMark = em.createNamedQuery(ReservaDeInstalacao.HIGH_WATER_MARK, Object[].class)
+				.getSingleResult();
+		long reservations = (Long) highWaterMark[0];
+		int last = highWaterMark[1] == null ? 0 : (Integer) highWaterMark[1];
+		lock.readLock().lock();
+		try {
+			return !stale && buffer.getLong(RESERVATIONS) == reservations && buffer.getInt(LAST_RESERVATION) == last;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the map as missing a reservation, until it is rebuilt.
+	 */
+	public void invalidate() {
+		lock.writeLock().lock();
+		try {
+			stale = true;
+			buffer.putLong(RESERVATIONS, STALE);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * @return the number of reservations added since the map was created
+	 * or rebuilt, -1 when it is stale
+	 */
+	public long getReservations() {
+		lock.readLock().lock();
+		try {
+			return buffer.getLong(RESERVATIONS);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Records that the map holds the given number of reservations, up to
+	 * the given greatest id, once the days of those it missed are marked
+	 * by {@link #reserve(int, Date, Date)}, for instance from a journal. A
+	 * stale map stays so.
+	 */
+	public void markCurrent(long reservations, int lastReservation) {
+		lock.writeLock().lock();
+		try {
+			if(!stale) {
+				buffer.putLong(RESERVATIONS, reservations);
+				buffer.putInt(LAST_RESERVATION, lastReservation);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return slots.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a new reservation: marks its days, as
+	 * {@link #reserve(int, Date, Date)} does, and counts it.
+	 */
+	public void add(int reserva, int instalacao, Date inicio, Date fim) throws IOException {
+		lock.writeLock().lock();
+		try {
+			reserve(instalacao, inicio, fim);
+			if(!stale) {
+				buffer.putLong(RESERVATIONS, buffer.getLong(RESERVATIONS) + 1);
+				buffer.putInt(LAST_RESERVATION, Math.max(buffer.getInt(LAST_RESERVATION), reserva));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the days from {@code inicio} to {@code fim}, both included, as
+	 * taken, without counting a reservation: marking the days of a
+	 * reservation already in the map changes nothing. Days outside the map
+	 * are ignored; those after it are read again by
+	 * {@link #rollTo(Date, EntityManager)} once they are in.
+	 */
+	public void reserve(int instalacao, Date inicio, Date fim) throws IOException {
+		lock.writeLock().lock();
+		try {
+			long from = Math.max(toEpochDay(inicio.getTime()) - origin, 0);
+			long to = Math.min(toEpochDay(fim.getTime()) - origin, days - 1);
+			if(from > to) {
+				return;
+			}
+			int base = record(slot(instalacao)) + 8;
+			int first = (int) from;
+			int last = (int) to;
+			for (int w = first >>> 6; w <= last >>> 6; w++) {
+				int at = base + w * 8;
+				buffer.putLong(at, buffer.getLong(at) | mask(w, first, last));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return whether the installation has no day taken from {@code inicio}
+	 * to {@code fim}, both included; an installation not in the map has none
+	 * @throws IllegalArgumentException if the period is not within the map
+	 * @throws IllegalStateException if the map is stale
+	 */
+	public boolean isFree(int instalacao, Date inicio, Date fim) {
+		lock.readLock().lock();
+		try {
+			checkNotStale();
+			int first = dayIndex(inicio);
+			int last = dayIndex(fim);
+			Integer slot = slots.get(instalacao);
+			return slot == null || isFree(record(slot) + 8, first, last);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the given installations with no day taken from {@code inicio}
+	 * to {@code fim}, both included, as by {@link #isFree(int, Date, Date)}
+	 * @throws IllegalArgumentException if the period is not within the map
+	 * @throws IllegalStateException if the map is stale
+	 */
+	public List<Integer> findFree(Collection<Integer> instalacoes, Date inicio, Date fim) {
+		lock.readLock().lock();
+		try {
+			checkNotStale();
+			int first = dayIndex(inicio);
+			int last = dayIndex(fim);
+			List<Integer> result = new ArrayList<>();
+			for (Integer instalacao : instalacoes) {
+				Integer slot = slots.get(instalacao);
+				if(slot == null || isFree(record(slot) + 8, first, last)) {
+					result.add(instalacao);
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves the origin forward to the given day, dropping the days before
+	 * it, and marks the days added at the end that are taken by the
+	 * reservations in the database. Reservations added meanwhile may miss
+	 * those days, so it should be called before any is.
+	 */
+	public void rollTo(Date newOrigin, EntityManager em) throws IOException {
+		long newDay = toEpochDay(newOrigin.getTime());
+		if(newDay <= origin) {
+			return;
+		}
+		// the first day that was not in the map
+		Date added = toDate(Math.max(origin + days, newDay));
+		List<Object[]> periods = em.createNamedQuery(ReservaDeInstalacao.FIND_PERIODS_ENDING_FROM, Object[].class)
+				.setParameter(ReservaDeInstalacao.INICIO, added, TemporalType.DATE).getResultList();
+		lock.writeLock().lock();
+		try {
+			long shift = newDay - origin;
+			int wordShift = (int) Math.min(shift >>> 6, words);
+			int bitShift = (int) (shift & 63);
+			for (int slot = 0; slot < slots.size(); slot++) {
+				int base = record(slot) + 8;
+				for (int w = 0; w < words; w++) {
+					long low = w + wordShift < words ? buffer.getLong(base + (w + wordShift) * 8) : 0;
+					long high = w + wordShift + 1 < words ? buffer.getLong(base + (w + wordShift + 1) * 8) : 0;
+					buffer.putLong(base + w * 8, bitShift == 0 ? low : low >>> bitShift | high << (64 - bitShift));
+				}
+			}
+			origin += shift;
+			buffer.putLong(ORIGIN, origin);
+			for (Object[] period : periods) {
+				reserve((Integer) period[0], (Date) period[1], (Date) period[2]);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Clears the map, adds every installation in the database to it and
+	 * every reservation, and so makes it current again.
+	 *
+	 * @return the number of reservations read
+	 */
+	public int rebuild(EntityManager em) throws IOException {
+		List<Integer> instalacoes = em.createNamedQuery(Instalacao.FIND_ALL_IDS, Integer.class).getResultList();
+		List<Object[]> periods = em.createNamedQuery(ReservaDeInstalacao.FIND_ALL_PERIODS, Object[].class)
+				.getResultList();
+		lock.writeLock().lock();
+		try {
+			slots.clear();
+			buffer.putInt(USED, 0);
+			buffer.putLong(RESERVATIONS, 0);
+			buffer.putInt(LAST_RESERVATION, 0);
+			stale = false;
+			for (Integer instalacao : instalacoes) {
+				slot(instalacao);
+			}
+			for (Object[] period : periods) {
+				add((Integer) period[0], (Integer) period[1], (Date) period[2], (Date) period[3]);
+			}
+			buffer.force();
+			return periods.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void force() {
+		lock.readLock().lock();
+		try {
+			buffer.force();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	private void checkNotStale() {
+		if(stale) {
+			throw new IllegalStateException("The occupancy map must be rebuilt");
+		}
+	}
+
+	private boolean isFree(int base, int first, int last) {
+		for (int w = first >>> 6; w <= last >>> 6; w++) {
+			if((buffer.getLong(base + w * 8) & mask(w, first, last)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the bits of word w that are days from first to last
+	private static long mask(int w, int first, int last) {
+		long mask = -1L;
+		if(w == first >>> 6) {
+			mask &= -1L << (first & 63);
+		}
+		if(w == last >>> 6) {
+			mask &= -1L >>> (63 - (last & 63));
+		}
+		return mask;
+	}
+
+	private int dayIndex(Date date) {
+		long day = toEpochDay(date.getTime()) - origin;
+		if(day < 0 || day >= days) {
+			throw new IllegalArgumentException(date + " is not within the occupancy map");
+		}
+		return (int) day;
+	}
+
+	private int slot(int instalacao) throws IOException {
+		Integer slot = slots.get(instalacao);
+		if(slot == null) {
+			slot = slots.size();
+			if(slot == capacity) {
+				capacity *= 2;
+				buffer.force();
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(capacity));
+				buffer.putInt(CAPACITY, capacity);
+			}
+			int at = record(slot);
+			buffer.putInt(at, instalacao);
+			// the record may hold the bitmap of an installation dropped by a rebuild
+			for (int w = 0; w < words; w++) {
+				buffer.putLong(at + 8 + w * 8, 0);
+			}
+			buffer.putInt(USED, slot + 1);
+			slots.put(instalacao, slot);
+		}
+		return slot;
+	}
+
+	private int record(int slot) {
+		return HEADER + slot * (8 + words * 8);
+	}
+
+	private long size(int capacity) {
+		return HEADER + (long) capacity * (8 + words * 8);
+	}
+
+	private static long toEpochDay(long millis) {
+		return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+
+	private static Date toDate(long epochDay) {
+		return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+}
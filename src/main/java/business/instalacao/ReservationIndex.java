@@ -0,0 +1,135 @@
+package business.instalacao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import business.reservainstalacao.ReservaDeInstalacao;
+
+/**
+ * Interval index over the reservations of one installation.
+ * <p>
+ * Reservations are kept sorted by start in parallel arrays together with
+ * the running maximum of their ends, so that every reservation that may
+ * overlap a period is found by binary search. Both bounds of a reservation
+ * are inclusive, as in {@link ReservaDeInstalacao#isOverlapedBy(Date, Date)}.
+ */
+public class ReservationIndex {
+
+	private long[] starts;
+	private long[] ends;
+	private long[] maxEnds;
+	private ReservaDeInstalacao[] reservas;
+	private int size;
+
+	public ReservationIndex(List<ReservaDeInstalacao> reservas) {
+		int capacity = Math.max(8, reservas.size());
+		this.starts = new long[capacity];
+		this.ends = new long[capacity];
+		this.maxEnds = new long[capacity];
+		this.reservas = new ReservaDeInstalacao[capacity];
+		for (ReservaDeInstalacao r : reservas) {
+			add(r);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void add(ReservaDeInstalacao reserva) {
+		if(size == starts.length) {
+			grow();
+		}
+		long start = reserva.getInicio().getTime();
+		int pos = upperBound(start);
+		System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+		System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+		System.arraycopy(reservas, pos, reservas, pos + 1, size - pos);
+		starts[pos] = start;
+		ends[pos] = reserva.getFim().getTime();
+		reservas[pos] = reserva;
+		size++;
+		for (int i = pos; i < size; i++) {
+			maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+		}
+	}
+
+	public boolean availableOn(Date inicio, Date fim) {
+		return availableOn(inicio.getTime(), fim.getTime());
+	}
+
+	public boolean availableOn(long from, long to) {
+		int last = upperBound(to) - 1;
+		return last < 0 || maxEnds[last] < from;
+	}
+
+	public List<ReservaDeInstalacao> findConflicts(Date inicio, Date fim) {
+		long from = inicio.getTime();
+		List<ReservaDeInstalacao> result = new ArrayList<>();
+		for (int i = upperBound(fim.getTime()) - 1; i >= 0 && maxEnds[i] >= from; i--) {
+			if(ends[i] >= from) {
+				result.add(reservas[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the earliest start, not before {@code after}, of a free period
+	 * {@code [start, start + length]} that overlaps no reservation.
+	 */
+	public Date nextFreeSlot(Date after, long length) {
+		long cursor = after.getTime();
+		for (int i = firstEndingFrom(cursor); i < size; i++) {
+			if(ends[i] < cursor) {
+				continue;
+			}
+			if(starts[i] > cursor + length) {
+				break;
+			}
+			cursor = Math.max(cursor, ends[i] + 1);
+		}
+		return new Date(cursor);
+	}
+
+	// first position whose start is greater than the given instant
+	private int upperBound(long instant) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(starts[mid] <= instant) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// first position whose running maximum end reaches the given instant
+	private int firstEndingFrom(long instant) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(maxEnds[mid] < instant) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private void grow() {
+		int capacity = starts.length * 2;
+		starts = Arrays.copyOf(starts, capacity);
+		ends = Arrays.copyOf(ends, capacity);
+		maxEnds = Arrays.copyOf(maxEnds, capacity);
+		reservas = Arrays.copyOf(reservas, capacity);
+	}
+
+}
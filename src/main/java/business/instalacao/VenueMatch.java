@@ -0,0 +1,38 @@
+package business.instalacao;
+
+/**
+ * An installation free for every session of an event, with the seats it
+ * has beyond those the event needs.
+ */
+public class VenueMatch implements Comparable<VenueMatch> {
+
+	private final Instalacao instalacao;
+	private final int capacidade;
+	private final int folga;
+
+	VenueMatch(Instalacao instalacao, int capacidade, int folga) {
+		this.instalacao = instalacao;
+		this.capacidade = capacidade;
+		this.folga = folga;
+	}
+
+	public Instalacao getInstalacao() {
+		return instalacao;
+	}
+
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+	public int getFolga() {
+		return folga;
+	}
+
+	// the closest fit first, then by id
+	@Override
+	public int compareTo(VenueMatch other) {
+		int result = Integer.compare(folga, other.folga);
+		return result != 0 ? result : Integer.compare(instalacao.getId(), other.instalacao.getId());
+	}
+
+}
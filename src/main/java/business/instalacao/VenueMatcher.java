@@ -0,0 +1,95 @@
+package business.instalacao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import business.event.TimeFrames;
+import business.eventtype.EventType;
+
+/**
+ * Finds the installations where an event fits: same kind of seats, at
+ * least as many seats as its event type admits, and free for every one
+ * of its sessions, as by {@link Instalacao#availableOn(java.util.Date, java.util.Date)}.
+ * <p>
+ * The candidates are split between the threads of a fork/join pool, and
+ * an installation is discarded on its first busy session. The given
+ * installations must have their reservations loaded and must not be used
+ * by another search at the same time.
+ */
+public class VenueMatcher {
+
+	// installations checked by one task without splitting further
+	private static final int THRESHOLD = 16;
+
+	private final ForkJoinPool pool;
+
+	public VenueMatcher(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the matching installations, the closest fit to the capacity first
+	 */
+	public List<VenueMatch> match(List<Instalacao> candidates, EventType eventType, TimeFrames sessions) {
+		List<VenueMatch> result = pool.invoke(new MatchTask(candidates, 0, candidates.size(), eventType, sessions));
+		Collections.sort(result);
+		return result;
+	}
+
+	static VenueMatch match(Instalacao instalacao, EventType eventType, TimeFrames sessions) {
+		EventType venueType = instalacao.getEventType();
+		int capacidade = venueType.getMax_watch();
+		if(venueType.getTipoDeLugares() != eventType.getTipoDeLugares() || capacidade < eventType.getMax_watch()) {
+			return null;
+		}
+		for (int i = 0; i < sessions.size(); i++) {
+			if(!instalacao.availableOn(sessions.getStart(i), sessions.getEnd(i))) {
+				return null;
+			}
+		}
+		return new VenueMatch(instalacao, capacidade, capacidade - eventType.getMax_watch());
+	}
+
+	private static class MatchTask extends RecursiveTask<List<VenueMatch>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Instalacao> candidates;
+		private final int from;
+		private final int to;
+		private final EventType eventType;
+		private final TimeFrames sessions;
+
+		MatchTask(List<Instalacao> candidates, int from, int to, EventType eventType, TimeFrames sessions) {
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			this.eventType = eventType;
+			this.sessions = sessions;
+		}
+
+		@Override
+		protected List<VenueMatch> compute() {
+			if(to - from <= THRESHOLD) {
+				List<VenueMatch> result = new ArrayList<>();
+				for (int i = from; i < to; i++) {
+					VenueMatch m = match(candidates.get(i), eventType, sessions);
+					if(m != null) {
+						result.add(m);
+					}
+				}
+				return result;
+			}
+			int middle = (from + to) >>> 1;
+			MatchTask left = new MatchTask(candidates, from, middle, eventType, sessions);
+			left.fork();
+			List<VenueMatch> result = new MatchTask(candidates, middle, to, eventType, sessions).compute();
+			result.addAll(left.join());
+			return result;
+		}
+	}
+
+}
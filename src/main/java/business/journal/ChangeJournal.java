@@ -0,0 +1,497 @@
+package business.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import javax.persistence.EntityManager;
+
+import business.event.Event;
+import business.reservainstalacao.ReservaDeInstalacao;
+
+/**
+ * Append-only journal of the events and reservations committed by this
+ * application, from which the state derived from them (the index of the
+ * event names, the occupancy of the installations) is recovered on start
+ * instead of being read again from every table.
+ * <p>
+ * The journal is a directory of segments of a fixed size, each written
+ * through a memory-mapped buffer. Every record is framed by its length
+ * and the CRC32 of its content, the length being written last, so a
+ * record torn by a crash is dropped when the journal is opened. A
+ * checkpoint starts a new segment with the names of all the events, then
+ * deletes the older segments; replaying the journal reads that segment
+ * and every record appended after it.
+ * <p>
+ * The records reach the operating system as soon as they are appended,
+ * but are forced to the disk only by a checkpoint or on close. When an
+ * append fails, the checkpoint is dropped, so that the next start reads
+ * the database.
+ * <p>
+ * The checkpoint also records the {@link HighWaterMark} of the database,
+ * which the records after it advance; a replay that does not end at the
+ * mark of the database fails, so that a database changed by other means,
+ * for instance seeded again, is read instead of a journal that does not
+ * describe it. Whoever changes the database that way should still
+ * {@link #dropCheckpoint(Path) drop the checkpoint}.
+ */
+public class ChangeJournal implements Closeable {
+
+	/**
+	 * Receives the records of a replay, in the order they were appended.
+	 */
+	public interface Listener {
+
+		/**
+		 * An event that existed at the checkpoint.
+		 */
+		default void nameRecorded(String nome) {
+		}
+
+		default void eventCreated(int id, String nome) {
+		}
+
+		default void reservaCreated(int id, int instalacao, long inicio, long fim) {
+		}
+
+	}
+
+	/**
+	 * The number of events and reservations and their greatest ids.
+	 */
+	public static final class HighWaterMark {
+
+		private final long events;
+		private final int lastEvent;
+		private final long reservas;
+		private final int lastReserva;
+
+		public HighWaterMark(long events, int lastEvent, long reservas, int lastReserva) {
+			this.events = events;
+			this.lastEvent = lastEvent;
+			this.reservas = reservas;
+			this.lastReserva = lastReserva;
+		}
+
+		public long getReservas() {
+			return reservas;
+		}
+
+		public int getLastReserva() {
+			return lastReserva;
+		}
+
+		/**
+		 * @return the mark of the rows committed to the database
+		 */
+		public static HighWaterMark of(EntityManager em) {
+			Object[] events = em.createNamedQuery(Event.HIGH_WATER_MARK, Object[].class).getSingleResult();
+			Object[] reservas = em.createNamedQuery(ReservaDeInstalacao.HIGH_WATER_MARK, Object[].class)
+					.getSingleResult();
+			return new HighWaterMark((Long) events[0], events[1] == null ? 0 : (Integer) events[1],
+					(Long) reservas[0], reservas[1] == null ? 0 : (Integer) reservas[1]);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof HighWaterMark)) {
+				return false;
+			}
+			HighWaterMark other = (HighWaterMark) obj;
+			return events == other.events && lastEvent == other.lastEvent && reservas == other.reservas
+					&& lastReserva == other.lastReserva;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(events, lastEvent, reservas, lastReserva);
+		}
+
+		@Override
+		public String toString() {
+			return "HighWaterMark [events=" + events + ", lastEvent=" + lastEvent + ", reservas=" + reservas
+					+ ", lastReserva=" + lastReserva + "]";
+		}
+
+	}
+
+	private static final int MAGIC = 0x4A524E4C;
+	private static final int FORMAT = 1;
+	private static final int HEADER = 16;
+	private static final int FRAME = 8;
+	private static final String SUFFIX = ".journal";
+	private static final String CHECKPOINT = "checkpoint";
+	// first segment and high-water mark
+	private static final int CHECKPOINT_SIZE = 8 + 8 + 4 + 8 + 4;
+
+	private static final byte NAME = 1;
+	private static final byte EVENT = 2;
+	private static final byte RESERVA = 3;
+	private static final byte CHECKPOINT_END = 4;
+
+	private final Path dir;
+	private final int segmentSize;
+	private final CRC32 crc = new CRC32();
+	private long checkpoint;
+	private HighWaterMark checkpointMark;
+	private long segment;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int position;
+	private volatile boolean failed;
+
+	private ChangeJournal(Path dir, int segmentSize) {
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Opens the journal in the given directory, creating it if needed, and
+	 * drops the record torn at its end, if any.
+	 */
+	public static ChangeJournal open(Path dir, int segmentSize) throws IOException {
+		Files.createDirectories(dir);
+		ChangeJournal journal = new ChangeJournal(dir, segmentSize);
+		List<Long> segments = journal.segments();
+		journal.checkpoint = journal.readCheckpoint(segments);
+		if(segments.isEmpty()) {
+			journal.openSegment(0, true);
+		} else {
+			journal.openSegment(segments.get(segments.size() - 1), false);
+			journal.position = journal.end(journal.buffer);
+			if(journal.position < segmentSize - 4 && journal.buffer.getInt(journal.position) != 0) {
+				for (int i = journal.position; i < segmentSize; i++) {
+					journal.buffer.put(i, (byte) 0);
+				}
+			}
+		}
+		return journal;
+	}
+
+	/**
+	 * @return whether the journal has a checkpoint to replay from
+	 */
+	public boolean hasCheckpoint() {
+		return checkpoint >= 0 && !failed;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the high-water mark of the database at the checkpoint, null
+	 * when there is none
+	 */
+	public HighWaterMark getCheckpointMark() {
+		return hasCheckpoint() ? checkpointMark : null;
+	}
+
+	/**
+	 * Appends the id and name of a committed event, all that a replay
+	 * needs. Failures are not thrown, but drop the checkpoint.
+	 */
+	public void eventCreated(Event event) {
+		byte[] nome = event.getName().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(1 + 4 + 4 + nome.length);
+		record.put(EVENT);
+		record.putInt(event.getId());
+		record.putInt(nome.length).put(nome);
+		tryAppend(record);
+	}
+
+	/**
+	 * Appends a committed reservation. Failures are not thrown, but drop
+	 * the checkpoint.
+	 */
+	public void reservaCreated(ReservaDeInstalacao reserva) {
+		ByteBuffer record = ByteBuffer.allocate(1 + 4 + 4 + 8 + 8);
+		record.put(RESERVA);
+		record.putInt(reserva.getId());
+		record.putInt(reserva.getInstalacao().getId());
+		record.putLong(reserva.getInicio().getTime());
+		record.putLong(reserva.getFim().getTime());
+		tryAppend(record);
+	}
+
+	/**
+	 * Deletes the checkpoint of the journal in the given directory, if any,
+	 * so that the next start reads the database.
+	 */
+	public static void dropCheckpoint(Path dir) throws IOException {
+		Files.deleteIfExists(dir.resolve(CHECKPOINT));
+	}
+
+	/**
+	 * Starts a new segment with the given names of all the events, then
+	 * makes it the checkpoint and deletes the segments before it. The
+	 * names must include those of every event appended so far, and the
+	 * mark must be that of the database once they were committed.
+	 */
+	public synchronized void checkpoint(Collection<String> names, HighWaterMark mark) throws IOException {
+		roll();
+		long start = segment;
+		for (String name : names) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer record = ByteBuffer.allocate(1 + 4 + bytes.length);
+			record.put(NAME).putInt(bytes.length).put(bytes);
+			append(record);
+		}
+		ByteBuffer end = ByteBuffer.allocate(1 + 4);
+		end.put(CHECKPOINT_END).putInt(names.size());
+		append(end);
+		buffer.force();
+		Path temp = dir.resolve(CHECKPOINT + ".tmp");
+		ByteBuffer content = ByteBuffer.allocate(CHECKPOINT_SIZE).putLong(start).putLong(mark.events)
+				.putInt(mark.lastEvent).putLong(mark.reservas).putInt(mark.lastReserva);
+		content.flip();
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.write(content);
+			out.force(true);
+		}
+		Files.move(temp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		checkpoint = start;
+		checkpointMark = mark;
+		failed = false;
+		for (long old : segments()) {
+			if(old < start) {
+				Files.delete(file(old));
+			}
+		}
+	}
+
+	/**
+	 * Reads the checkpoint and every record after it. Whether the records
+	 * match the database is known only once all of them are read, so the
+	 * listener should keep them until this method returns.
+	 *
+	 * @param database the mark of the database
+	 * @return the number of records read
+	 * @throws IOException if there is no checkpoint, a record is corrupt or
+	 * the records do not end at the mark of the database
+	 */
+	public synchronized int replay(Listener listener, HighWaterMark database) throws IOException {
+		if(!hasCheckpoint()) {
+			throw new IOException("No checkpoint to replay from");
+		}
+		long events = checkpointMark.events;
+		int lastEvent = checkpointMark.lastEvent;
+		long reservas = checkpointMark.reservas;
+		int lastReserva = checkpointMark.lastReserva;
+		int records = 0;
+		boolean checkpointRead = false;
+		for (long s : segments()) {
+			if(s < checkpoint) {
+				continue;
+			}
+			ByteBuffer in;
+			if(s == segment) {
+				in = buffer.duplicate();
+			} else {
+				try (FileChannel c = FileChannel.open(file(s), StandardOpenOption.READ)) {
+					in = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+				}
+			}
+			if(in.getInt(0) != MAGIC || in.getInt(4) != FORMAT || in.getLong(8) != s) {
+				throw new IOException("Corrupt journal segment " + s);
+			}
+			int end = s == segment ? position : end(in);
+			if(end < in.limit() - 4 && in.getInt(end) != 0) {
+				throw new IOException("Corrupt record in journal segment " + s + " at " + end);
+			}
+			for (int at = HEADER; at < end; at += FRAME + in.getInt(at)) {
+				in.limit(at + FRAME + in.getInt(at)).position(at + FRAME);
+				ByteBuffer record = in.slice();
+				in.limit(in.capacity());
+				byte type = record.get();
+				if(type == CHECKPOINT_END) {
+					checkpointRead = true;
+				} else {
+					int id = read(type, record, listener);
+					if(type == EVENT) {
+						events++;
+						lastEvent = Math.max(lastEvent, id);
+					} else if(type == RESERVA) {
+						reservas++;
+						lastReserva = Math.max(lastReserva, id);
+					}
+				}
+				records++;
+			}
+		}
+		if(!checkpointRead) {
+			throw new IOException("Incomplete journal checkpoint " + checkpoint);
+		}
+		HighWaterMark replayed = new HighWaterMark(events, lastEvent, reservas, lastReserva);
+		if(!replayed.equals(database)) {
+			throw new IOException("Journal at " + replayed + " does not match the database at " + database);
+		}
+		return records;
+	}
+
+	// the id of the event or reservation read, 0 for a name
+	private int read(byte type, ByteBuffer record, Listener listener) throws IOException {
+		switch (type) {
+		case NAME:
+			listener.nameRecorded(string(record));
+			return 0;
+		case EVENT:
+			int id = record.getInt();
+			listener.eventCreated(id, string(record));
+			return id;
+		case RESERVA:
+			int reserva = record.getInt();
+			listener.reservaCreated(reserva, record.getInt(), record.getLong(), record.getLong());
+			return reserva;
+		default:
+			throw new IOException("Unknown journal record " + type);
+		}
+	}
+
+	public synchronized void force() {
+		buffer.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private void tryAppend(ByteBuffer record) {
+		if(failed) {
+			return;
+		}
+		synchronized (this) {
+			try {
+				append(record);
+			} catch (IOException | RuntimeException e) {
+				failed = true;
+				try {
+					dropCheckpoint(dir);
+				} catch (IOException ignored) {
+					// the journal cannot be read from then
+				}
+			}
+		}
+	}
+
+	private void append(ByteBuffer record) throws IOException {
+		record.flip();
+		int length = record.remaining();
+		if(HEADER + FRAME + length > segmentSize) {
+			throw new IOException("Journal record of " + length + " bytes does not fit in a segment");
+		}
+		if(position + FRAME + length > segmentSize) {
+			roll();
+		}
+		crc.reset();
+		crc.update(record.array(), 0, length);
+		ByteBuffer out = buffer.duplicate();
+		out.position(position + FRAME);
+		out.put(record);
+		buffer.putInt(position + 4, (int) crc.getValue());
+		// the length is written last: until then the record is not there
+		buffer.putInt(position, length);
+		position += FRAME + length;
+	}
+
+	// the position after the last valid record of a segment
+	private int end(ByteBuffer in) {
+		int at = HEADER;
+		while (at + FRAME <= in.limit()) {
+			int length = in.getInt(at);
+			if(length <= 0 || at + FRAME + length > in.limit()) {
+				break;
+			}
+			ByteBuffer record = in.duplicate();
+			record.limit(at + FRAME + length).position(at + FRAME);
+			crc.reset();
+			crc.update(record);
+			if((int) crc.getValue() != in.getInt(at + 4)) {
+				break;
+			}
+			at += FRAME + length;
+		}
+		return at;
+	}
+
+	private void roll() throws IOException {
+		buffer.force();
+		channel.close();
+		openSegment(segment + 1, true);
+	}
+
+	private void openSegment(long number, boolean create) throws IOException {
+		channel = FileChannel.open(file(number), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		segment = number;
+		if(create) {
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, FORMAT);
+			buffer.putLong(8, number);
+			position = HEADER;
+		} else if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT || buffer.getLong(8) != number) {
+			channel.close();
+			throw new IOException("Corrupt journal segment " + number);
+		}
+	}
+
+	private long readCheckpoint(List<Long> segments) throws IOException {
+		Path file = dir.resolve(CHECKPOINT);
+		if(!Files.exists(file)) {
+			return -1;
+		}
+		byte[] content = Files.readAllBytes(file);
+		if(content.length != CHECKPOINT_SIZE) {
+			return -1;
+		}
+		ByteBuffer in = ByteBuffer.wrap(content);
+		long start = in.getLong();
+		checkpointMark = new HighWaterMark(in.getLong(), in.getInt(), in.getLong(), in.getInt());
+		return segments.contains(start) ? start : -1;
+	}
+
+	private List<Long> segments() throws IOException {
+		List<Long> segments = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+			for (Path f : files) {
+				String name = f.getFileName().toString();
+				try {
+					segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// not a segment
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private Path file(long number) {
+		return dir.resolve(String.format("%010d", number) + SUFFIX);
+	}
+
+	private static String string(ByteBuffer record) {
+		byte[] bytes = new byte[record.getInt()];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,159 @@
+package business.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * Latency and query counters of the event creation handlers, and
+ * transaction counters of the whole application.
+ * <p>
+ * Once {@link #listenTo(EntityManagerFactory) listening} to the persistence
+ * unit, every SQL statement sent to the database is counted, against the
+ * operation running on the thread that sends it, or as another query when
+ * no operation is (the write-behind writer, bookings, imports, tickets); a
+ * lookup answered by a cache is not a query. The transactions are those of
+ * the database, begun by any handler: a transaction that only reads never
+ * opens one.
+ * <p>
+ * The recording methods are lock-free and allocate nothing, so metrics can
+ * stay on in production.
+ */
+public class HandlerMetrics implements HandlerMetricsMBean {
+
+	private static final Operation[] OPERATIONS = Operation.values();
+
+	private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+	private final AtomicLongArray queries = new AtomicLongArray(OPERATIONS.length);
+	private final AtomicLong otherQueries = new AtomicLong();
+	private final AtomicLong begun = new AtomicLong();
+	private final AtomicLong committed = new AtomicLong();
+	private final AtomicLong rolledBack = new AtomicLong();
+	private final ThreadLocal<Operation> running = new ThreadLocal<>();
+
+	public HandlerMetrics() {
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Counts the queries and transactions of the given persistence unit.
+	 */
+	public void listenTo(EntityManagerFactory emf) {
+		emf.unwrap(Session.class).getEventManager().addListener(new SessionEventAdapter() {
+			@Override
+			public void preExecuteCall(SessionEvent event) {
+				queryExecuted();
+			}
+
+			@Override
+			public void postBeginTransaction(SessionEvent event) {
+				begun.incrementAndGet();
+			}
+
+			@Override
+			public void postCommitTransaction(SessionEvent event) {
+				committed.incrementAndGet();
+			}
+
+			@Override
+			public void postRollbackTransaction(SessionEvent event) {
+				rolledBack.incrementAndGet();
+			}
+		});
+	}
+
+	public long start(Operation operation) {
+		running.set(operation);
+		return System.nanoTime();
+	}
+
+	public void record(Operation operation, long start) {
+		latencies[operation.ordinal()].record(System.nanoTime() - start);
+		running.remove();
+	}
+
+	private void queryExecuted() {
+		Operation operation = running.get();
+		if(operation == null) {
+			otherQueries.incrementAndGet();
+		} else {
+			queries.incrementAndGet(operation.ordinal());
+		}
+	}
+
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	@Override
+	public long getTransactionsBegun() {
+		return begun.get();
+	}
+
+	@Override
+	public long getTransactionsCommitted() {
+		return committed.get();
+	}
+
+	@Override
+	public long getTransactionsRolledBack() {
+		return rolledBack.get();
+	}
+
+	@Override
+	public long getCount(String operation) {
+		return getLatency(Operation.valueOf(operation)).getCount();
+	}
+
+	@Override
+	public long getQueries(String operation) {
+		return queries.get(Operation.valueOf(operation).ordinal());
+	}
+
+	@Override
+	public long getOtherQueries() {
+		return otherQueries.get();
+	}
+
+	@Override
+	public long getMeanMicros(String operation) {
+		return getLatency(Operation.valueOf(operation)).getMean(TimeUnit.MICROSECONDS);
+	}
+
+	@Override
+	public long getP99Micros(String operation) {
+		return getLatency(Operation.valueOf(operation)).getQuantile(0.99, TimeUnit.MICROSECONDS);
+	}
+
+	@Override
+	public long getMaxMicros(String operation) {
+		return getLatency(Operation.valueOf(operation)).getMax(TimeUnit.MICROSECONDS);
+	}
+
+	@Override
+	public String getReport() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "transactions begun=%d committed=%d rolled back=%d, other queries=%d%n",
+				begun.get(), committed.get(), rolledBack.get(), otherQueries.get()));
+		sb.append(String.format(Locale.ROOT, "%-26s %10s %10s %10s %10s %10s %10s%n",
+				"operation", "count", "queries", "mean(us)", "p50(us)", "p99(us)", "max(us)"));
+		for (Operation op : OPERATIONS) {
+			LatencyHistogram h = getLatency(op);
+			sb.append(String.format(Locale.ROOT, "%-26s %10d %10d %10d %10d %10d %10d%n", op, h.getCount(),
+					queries.get(op.ordinal()), h.getMean(TimeUnit.MICROSECONDS),
+					h.getQuantile(0.5, TimeUnit.MICROSECONDS), h.getQuantile(0.99, TimeUnit.MICROSECONDS),
+					h.getMax(TimeUnit.MICROSECONDS)));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,28 @@
+package business.metrics;
+
+/**
+ * JMX view of the {@link HandlerMetrics}. Latencies are in microseconds.
+ */
+public interface HandlerMetricsMBean {
+
+	long getTransactionsBegun();
+
+	long getTransactionsCommitted();
+
+	long getTransactionsRolledBack();
+
+	String getReport();
+
+	long getCount(String operation);
+
+	long getQueries(String operation);
+
+	long getOtherQueries();
+
+	long getMeanMicros(String operation);
+
+	long getP99Micros(String operation);
+
+	long getMaxMicros(String operation);
+
+}
@@ -0,0 +1,85 @@
+package business.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds, in the manner of
+ * HdrHistogram: every power of two is split in {@value #SUB_BUCKETS}
+ * buckets, so values are kept with a relative error of about 3%.
+ * <p>
+ * Recording is lock-free and allocates nothing.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(index(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long m;
+		while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+			// retry until the maximum is at least this value
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax(TimeUnit unit) {
+		return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public long getMean(TimeUnit unit) {
+		long n = count.get();
+		return n == 0 ? 0 : unit.convert(total.get() / n, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param quantile between 0 and 1
+	 * @return the upper bound of the bucket holding the given quantile
+	 */
+	public long getQuantile(double quantile, TimeUnit unit) {
+		long n = count.get();
+		if(n == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(quantile * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if(seen >= target) {
+				return unit.convert(Math.min(upperBound(i), max.get()), TimeUnit.NANOSECONDS);
+			}
+		}
+		return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+	}
+
+	private static int index(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	private static long upperBound(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,9 @@
+package business.metrics;
+
+/**
+ * The operations of the event creation use case that are measured.
+ */
+public enum Operation {
+	TRY_CREATE_EVENT, SET_TIPO, SET_NOME, SET_EMPRESA, ADD_DATE, CREATE_EVENT, CREATE_EVENT_REQUEST,
+	CREATE_EVENT_WRITE_BEHIND
+}
@@ -7,20 +7,59 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
 import business.instalacao.Instalacao;
 
 @Entity
+// descending on INICIO, for the latest reservation starting by a day, and holding
+// every column, so that Derby picks it over the foreign key even without statistics
+@Table(indexes = @Index(name = "IDX_RESERVA_INSTALACAO_DATAS", columnList = "INSTALACAO_ID,INICIO DESC,FIM,ID"))
+@NamedQueries({
+	@NamedQuery(name=ReservaDeInstalacao.LATEST_START, query="SELECT MAX(r.inicio) FROM ReservaDeInstalacao r " +
+			"WHERE r.instalacao = :" + ReservaDeInstalacao.INSTALACAO + " AND r.inicio <= :" + ReservaDeInstalacao.INICIO),
+	@NamedQuery(name=ReservaDeInstalacao.FIND_OVERLAPPING, query="SELECT r FROM ReservaDeInstalacao r " +
+			"WHERE r.instalacao = :" + ReservaDeInstalacao.INSTALACAO + " AND r.inicio <= :" + ReservaDeInstalacao.FIM +
+			" AND r.inicio >= :" + ReservaDeInstalacao.DESDE + " AND r.fim >= :" + ReservaDeInstalacao.INICIO),
+	@NamedQuery(name=ReservaDeInstalacao.COUNT_OVERLAPPING, query="SELECT COUNT(r) FROM ReservaDeInstalacao r " +
+			"WHERE r.instalacao = :" + ReservaDeInstalacao.INSTALACAO + " AND r.inicio <= :" + ReservaDeInstalacao.FIM +
+			" AND r.inicio >= :" + ReservaDeInstalacao.DESDE + " AND r.fim >= :" + ReservaDeInstalacao.INICIO),
+	@NamedQuery(name=ReservaDeInstalacao.FIND_IN_PERIOD, query="SELECT r FROM ReservaDeInstalacao r " +
+			"WHERE r.instalacao IN :" + ReservaDeInstalacao.INSTALACOES + " AND r.inicio <= :" + ReservaDeInstalacao.FIM +
+			" AND r.fim >= :" + ReservaDeInstalacao.INICIO),
+	@NamedQuery(name=ReservaDeInstalacao.FIND_ALL_PERIODS, query="SELECT r.id, r.instalacao.id, r.inicio, r.fim " +
+			"FROM ReservaDeInstalacao r"),
+	@NamedQuery(name=ReservaDeInstalacao.FIND_PERIODS_ENDING_FROM, query="SELECT r.instalacao.id, r.inicio, r.fim " +
+			"FROM ReservaDeInstalacao r WHERE r.fim >= :" + ReservaDeInstalacao.INICIO),
+	@NamedQuery(name=ReservaDeInstalacao.HIGH_WATER_MARK, query="SELECT COUNT(r), MAX(r.id) FROM ReservaDeInstalacao r")
+})
 public class ReservaDeInstalacao {
 	
+	public static final String LATEST_START = "ReservaDeInstalacao.latestStart";
+	public static final String FIND_OVERLAPPING = "ReservaDeInstalacao.findOverlapping";
+	public static final String COUNT_OVERLAPPING = "ReservaDeInstalacao.countOverlapping";
+	public static final String FIND_IN_PERIOD = "ReservaDeInstalacao.findInPeriod";
+	public static final String FIND_ALL_PERIODS = "ReservaDeInstalacao.findAllPeriods";
+	public static final String FIND_PERIODS_ENDING_FROM = "ReservaDeInstalacao.findPeriodsEndingFrom";
+	public static final String HIGH_WATER_MARK = "ReservaDeInstalacao.highWaterMark";
+	public static final String INSTALACAO = "instalacao";
+	public static final String INSTALACOES = "instalacoes";
+	public static final String INICIO = "inicio";
+	public static final String FIM = "fim";
+	public static final String DESDE = "desde";
+	
 	@Id @GeneratedValue(strategy = GenerationType.AUTO)
 	private int id;
 	
 	@ManyToOne
-	@Column(nullable = false)
+	@JoinColumn(nullable = false)
 	private Instalacao instalacao;
 	
 	@Temporal(TemporalType.DATE) @Column(nullable = false)
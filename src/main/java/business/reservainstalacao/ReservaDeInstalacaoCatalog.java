@@ -0,0 +1,56 @@
+package business.reservainstalacao;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+import business.instalacao.Instalacao;
+
+public class ReservaDeInstalacaoCatalog {
+
+	private EntityManager em;
+
+	public ReservaDeInstalacaoCatalog(EntityManager em) {
+		this.em = em;
+	}
+
+	public boolean isAvailable(Instalacao instalacao, Date inicio, Date fim) {
+		TypedQuery<Long> query = em.createNamedQuery(ReservaDeInstalacao.COUNT_OVERLAPPING, Long.class);
+		setPeriod(query, instalacao, inicio, fim);
+		return query.getSingleResult() == 0;
+	}
+
+	public List<ReservaDeInstalacao> findConflicts(Instalacao instalacao, Date inicio, Date fim) {
+		TypedQuery<ReservaDeInstalacao> query =
+				em.createNamedQuery(ReservaDeInstalacao.FIND_OVERLAPPING, ReservaDeInstalacao.class);
+		setPeriod(query, instalacao, inicio, fim);
+		return query.getResultList();
+	}
+
+	public ReservaDeInstalacao addNewReserva(Instalacao instalacao, Date inicio, Date fim) {
+		ReservaDeInstalacao reserva = new ReservaDeInstalacao(instalacao, inicio, fim);
+		em.persist(reserva);
+		return reserva;
+	}
+
+	/*
+	 * The reservations of an installation never overlap one another, so
+	 * the only one starting before the period that can reach into it is the
+	 * latest one: the overlapping reservations start between its start and
+	 * the end of the period, a bounded range of the index.
+	 */
+	private void setPeriod(TypedQuery<?> query, Instalacao instalacao, Date inicio, Date fim) {
+		Date desde = em.createNamedQuery(ReservaDeInstalacao.LATEST_START, Date.class)
+				.setParameter(ReservaDeInstalacao.INSTALACAO, instalacao)
+				.setParameter(ReservaDeInstalacao.INICIO, inicio, TemporalType.DATE)
+				.getSingleResult();
+		query.setParameter(ReservaDeInstalacao.INSTALACAO, instalacao);
+		query.setParameter(ReservaDeInstalacao.INICIO, inicio, TemporalType.DATE);
+		query.setParameter(ReservaDeInstalacao.FIM, fim, TemporalType.DATE);
+		query.setParameter(ReservaDeInstalacao.DESDE, desde == null ? inicio : desde, TemporalType.DATE);
+	}
+
+}
@@ -1,10 +1,10 @@
 package business.seat;
 
-import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
 import business.reservainstalacao.ReservaDeInstalacao;
@@ -16,7 +16,7 @@ public class Seat {
 	private int id;
 	
 	@ManyToOne
-	@Column(nullable = false)
+	@JoinColumn(nullable = false)
 	private ReservaDeInstalacao reserva;
 	
 	Seat(){}
@@ -0,0 +1,276 @@
+package business.seat;
+
+import java.nio.ByteBuffer;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.NamedQuery;
+import javax.persistence.OneToOne;
+import javax.persistence.Transient;
+
+import business.SeatType;
+import business.eventtype.EventType;
+import business.reservainstalacao.ReservaDeInstalacao;
+
+/**
+ * The seats of one reservation, kept in a single row.
+ * <p>
+ * Seated reservations keep one bit per seat, numbered from 0, packed in a
+ * LOB column; standing reservations ({@link SeatType#EM_PE}) only count
+ * the places taken.
+ */
+@Entity
+@NamedQuery(name=SeatInventory.FIND_BY_RESERVA, query="SELECT s FROM SeatInventory s WHERE s.reserva = :" +
+		SeatInventory.RESERVA)
+public class SeatInventory {
+
+	public static final String FIND_BY_RESERVA = "SeatInventory.findByReserva";
+	public static final String RESERVA = "reserva";
+
+	@Id @GeneratedValue(strategy = GenerationType.AUTO)
+	private int id;
+
+	@OneToOne
+	@JoinColumn(nullable = false, unique = true)
+	private ReservaDeInstalacao reserva;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private SeatType tipoDeLugares;
+
+	@Column(nullable = false)
+	private int capacity;
+
+	@Column(nullable = false)
+	private int ocupados;
+
+	@Lob @Basic(fetch = FetchType.LAZY)
+	private byte[] seats;
+
+	// the unpacked bitmap of the seats, a set bit means the seat is taken
+	@Transient
+	private long[] words;
+
+	SeatInventory(){}
+
+	public SeatInventory(ReservaDeInstalacao reserva, EventType eventType) {
+		this.reserva = reserva;
+		this.tipoDeLugares = eventType.getTipoDeLugares();
+		this.capacity = eventType.getMax_watch();
+		if(tipoDeLugares == SeatType.SENTADO) {
+			words = new long[(capacity + 63) >>> 6];
+			pack();
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public ReservaDeInstalacao getReserva() {
+		return reserva;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getOcupados() {
+		return ocupados;
+	}
+
+	public int getDisponiveis() {
+		return capacity - ocupados;
+	}
+
+	public boolean isOcupado(int seat) {
+		checkSeat(seat);
+		return (words()[seat >>> 6] & (1L << seat)) != 0;
+	}
+
+	/**
+	 * Takes the n best available seats: the first block of n adjacent free
+	 * seats or, when there is none, the first n free seats. Standing places
+	 * are simply counted, and the returned numbers are those of the places
+	 * in order of sale.
+	 *
+	 * @return the numbers of the seats taken
+	 * @throws IllegalStateException when fewer than n seats are free
+	 */
+	public int[] allocate(int n) {
+		if(n < 1 || n > getDisponiveis()) {
+			throw new IllegalStateException("Not possible to allocate " + n + " seats, " + getDisponiveis() + " available");
+		}
+		int[] result = new int[n];
+		if(tipoDeLugares == SeatType.EM_PE) {
+			for (int i = 0; i < n; i++) {
+				result[i] = ocupados + i;
+			}
+		} else {
+			int start = firstFreeBlock(n);
+			if(start >= 0) {
+				for (int i = 0; i < n; i++) {
+					result[i] = start + i;
+				}
+			} else {
+				int seat = nextFree(0);
+				for (int i = 0; i < n; i++, seat = nextFree(seat + 1)) {
+					result[i] = seat;
+				}
+			}
+			long[] w = words();
+			for (int seat : result) {
+				w[seat >>> 6] |= 1L << seat;
+			}
+			pack();
+		}
+		ocupados += n;
+		return result;
+	}
+
+	/**
+	 * Takes the given seats, chosen by the caller, for instance by the
+	 * ticket sales engine. Standing places are only counted.
+	 *
+	 * @throws IllegalStateException when a seat is already taken, or there
+	 * are not that many places left, in which case none is taken
+	 */
+	public void take(int[] taken) {
+		if(taken.length > getDisponiveis()) {
+			throw new IllegalStateException("Not possible to take " + taken.length + " seats, " + getDisponiveis() + " available");
+		}
+		if(tipoDeLugares == SeatType.SENTADO) {
+			long[] w = words();
+			for (int i = 0; i < taken.length; i++) {
+				checkSeat(taken[i]);
+				long mask = 1L << taken[i];
+				if((w[taken[i] >>> 6] & mask) != 0) {
+					for (int j = 0; j < i; j++) {
+						w[taken[j] >>> 6] &= ~(1L << taken[j]);
+					}
+					throw new IllegalStateException("Seat " + taken[i] + " is already taken");
+				}
+				w[taken[i] >>> 6] |= mask;
+			}
+			pack();
+		}
+		ocupados += taken.length;
+	}
+
+	/**
+	 * @return the numbers of the seats taken, in order; standing places are
+	 * numbered in order of sale
+	 */
+	public int[] getTaken() {
+		int[] result = new int[ocupados];
+		if(tipoDeLugares == SeatType.EM_PE) {
+			for (int i = 0; i < ocupados; i++) {
+				result[i] = i;
+			}
+		} else {
+			int seat = nextTaken(0);
+			for (int i = 0; i < ocupados; i++, seat = nextTaken(seat + 1)) {
+				result[i] = seat;
+			}
+		}
+		return result;
+	}
+
+	public void release(int[] released) {
+		if(tipoDeLugares == SeatType.EM_PE) {
+			ocupados = Math.max(0, ocupados - released.length);
+			return;
+		}
+		long[] w = words();
+		for (int seat : released) {
+			checkSeat(seat);
+			long mask = 1L << seat;
+			if((w[seat >>> 6] & mask) != 0) {
+				w[seat >>> 6] &= ~mask;
+				ocupados--;
+			}
+		}
+		pack();
+	}
+
+	private int firstFreeBlock(int n) {
+		int from = nextFree(0);
+		while (from < capacity) {
+			int to = nextTaken(from);
+			if(to - from >= n) {
+				return from;
+			}
+			from = nextFree(to);
+		}
+		return -1;
+	}
+
+	private int nextFree(int from) {
+		long[] w = words();
+		int i = from >>> 6;
+		if(i >= w.length) {
+			return capacity;
+		}
+		long word = ~w[i] & (-1L << from);
+		while (word == 0) {
+			if(++i == w.length) {
+				return capacity;
+			}
+			word = ~w[i];
+		}
+		return Math.min(capacity, (i << 6) + Long.numberOfTrailingZeros(word));
+	}
+
+	private int nextTaken(int from) {
+		long[] w = words();
+		int i = from >>> 6;
+		if(i >= w.length) {
+			return capacity;
+		}
+		long word = w[i] & (-1L << from);
+		while (word == 0) {
+			if(++i == w.length) {
+				return capacity;
+			}
+			word = w[i];
+		}
+		return Math.min(capacity, (i << 6) + Long.numberOfTrailingZeros(word));
+	}
+
+	private void checkSeat(int seat) {
+		if(tipoDeLugares != SeatType.SENTADO || seat < 0 || seat >= capacity) {
+			throw new IllegalArgumentException("No seat " + seat);
+		}
+	}
+
+	private long[] words() {
+		if(words == null) {
+			unpack();
+		}
+		return words;
+	}
+
+	// the bitmap is written back on every change so that JPA sees it dirty
+	private void pack() {
+		ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+		buffer.asLongBuffer().put(words);
+		seats = buffer.array();
+	}
+
+	private void unpack() {
+		words = new long[(capacity + 63) >>> 6];
+		if(seats != null) {
+			ByteBuffer.wrap(seats).asLongBuffer().get(words, 0, Math.min(words.length, seats.length / Long.BYTES));
+		}
+	}
+
+}
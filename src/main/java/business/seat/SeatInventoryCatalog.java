@@ -0,0 +1,45 @@
+package business.seat;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import business.eventtype.EventType;
+import business.reservainstalacao.ReservaDeInstalacao;
+
+public class SeatInventoryCatalog {
+
+	private EntityManager em;
+
+	public SeatInventoryCatalog(EntityManager em) {
+		this.em = em;
+	}
+
+	public SeatInventory getSeatInventory(ReservaDeInstalacao reserva) {
+		TypedQuery<SeatInventory> query = em.createNamedQuery(SeatInventory.FIND_BY_RESERVA, SeatInventory.class);
+		query.setParameter(SeatInventory.RESERVA, reserva);
+		return query.getSingleResult();
+	}
+
+	/**
+	 * @return the inventory of the reservation, created with the seats of
+	 * the event type of its installation when it has none yet
+	 */
+	public SeatInventory getOrAddSeatInventory(ReservaDeInstalacao reserva) {
+		TypedQuery<SeatInventory> query = em.createNamedQuery(SeatInventory.FIND_BY_RESERVA, SeatInventory.class);
+		query.setParameter(SeatInventory.RESERVA, reserva);
+		List<SeatInventory> found = query.getResultList();
+		if(!found.isEmpty()) {
+			return found.get(0);
+		}
+		return addNewSeatInventory(reserva, reserva.getInstalacao().getEventType());
+	}
+
+	public SeatInventory addNewSeatInventory(ReservaDeInstalacao reserva, EventType eventType) {
+		SeatInventory inventory = new SeatInventory(reserva, eventType);
+		em.persist(inventory);
+		return inventory;
+	}
+
+}
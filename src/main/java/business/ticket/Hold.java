@@ -0,0 +1,67 @@
+package business.ticket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seats of a reservation held for a buyer until they are confirmed or the
+ * hold expires.
+ */
+public class Hold {
+
+	static final int PENDING = 0;
+	static final int CONFIRMED = 1;
+	static final int EXPIRED = 2;
+
+	private final long id;
+	private final SeatAllocator allocator;
+	private final int[] seats;
+	private final long deadline;
+	private final AtomicInteger state = new AtomicInteger(PENDING);
+
+	Hold(long id, SeatAllocator allocator, int[] seats, long deadline) {
+		this.id = id;
+		this.allocator = allocator;
+		this.seats = seats;
+		this.deadline = deadline;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public int getReservaId() {
+		return allocator.getReservaId();
+	}
+
+	/**
+	 * @return the numbers of the held seats
+	 */
+	public int[] getSeats() {
+		return seats.clone();
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+
+	SeatAllocator getAllocator() {
+		return allocator;
+	}
+
+	boolean confirm() {
+		if(!state.compareAndSet(PENDING, CONFIRMED)) {
+			return false;
+		}
+		allocator.sell(seats);
+		return true;
+	}
+
+	boolean expire() {
+		if(!state.compareAndSet(PENDING, EXPIRED)) {
+			return false;
+		}
+		allocator.release(seats);
+		return true;
+	}
+
+}
@@ -0,0 +1,69 @@
+package business.ticket;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel that expires holds.
+ * <p>
+ * Scheduling a hold is a queue insertion in the slot of its deadline; a
+ * single thread advances the wheel one tick at a time and hands the holds
+ * whose deadline has passed to the expiry action.
+ */
+public class HoldTimerWheel {
+
+	private final long tickMillis;
+	private final Queue<Hold>[] slots;
+	private final Consumer<Hold> onExpiry;
+	private final ScheduledExecutorService ticker;
+	private volatile long currentTick;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public HoldTimerWheel(int slotCount, long tickMillis, Consumer<Hold> onExpiry) {
+		this.tickMillis = tickMillis;
+		this.slots = new Queue[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.onExpiry = onExpiry;
+		this.currentTick = System.currentTimeMillis() / tickMillis;
+		this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "hold-timer-wheel");
+			t.setDaemon(true);
+			return t;
+		});
+		ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void schedule(Hold hold) {
+		long tick = Math.max(hold.getDeadline() / tickMillis, currentTick + 1);
+		slots[(int) (tick % slots.length)].add(hold);
+	}
+
+	private void advance() {
+		long now = System.currentTimeMillis() / tickMillis;
+		while (currentTick <= now) {
+			long tick = currentTick;
+			Iterator<Hold> it = slots[(int) (tick % slots.length)].iterator();
+			while (it.hasNext()) {
+				Hold hold = it.next();
+				// holds further away than a turn of the wheel stay for the next turns
+				if(hold.getDeadline() / tickMillis <= tick) {
+					it.remove();
+					onExpiry.accept(hold);
+				}
+			}
+			currentTick = tick + 1;
+		}
+	}
+
+	public void stop() {
+		ticker.shutdownNow();
+	}
+
+}
@@ -0,0 +1,89 @@
+package business.ticket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free allocator of the seats of one reservation.
+ * <p>
+ * Each seat moves from free to held with a compare-and-set, and from held
+ * to sold or back to free only by the hold that owns it. The number of
+ * free seats is reserved before they are looked for, so that buyers fail
+ * fast when the reservation is sold out and a seat is never sold twice.
+ */
+public class SeatAllocator {
+
+	private static final int FREE = 0;
+	private static final int HELD = 1;
+	private static final int SOLD = 2;
+
+	private final int reservaId;
+	private final AtomicIntegerArray states;
+	private final AtomicInteger available;
+	private final AtomicInteger cursor = new AtomicInteger();
+
+	/**
+	 * @param capacity the number of seats, numbered from 0
+	 * @param sold the numbers of the seats already sold
+	 */
+	public SeatAllocator(int reservaId, int capacity, int[] sold) {
+		this.reservaId = reservaId;
+		this.states = new AtomicIntegerArray(capacity);
+		for (int s : sold) {
+			states.set(s, SOLD);
+		}
+		this.available = new AtomicInteger(capacity - sold.length);
+	}
+
+	public int getReservaId() {
+		return reservaId;
+	}
+
+	public int getAvailable() {
+		return available.get();
+	}
+
+	/**
+	 * Holds n free seats.
+	 *
+	 * @return the numbers of the held seats, or null when fewer than n
+	 * seats are free
+	 */
+	int[] hold(int n) {
+		int free;
+		do {
+			free = available.get();
+			if(free < n) {
+				return null;
+			}
+		} while (!available.compareAndSet(free, free - n));
+
+		// n free seats are now ours to find; start where the last buyer stopped
+		int[] held = new int[n];
+		int found = 0;
+		int length = states.length();
+		int seat = Math.floorMod(cursor.get(), length);
+		while (found < n) {
+			if(states.get(seat) == FREE && states.compareAndSet(seat, FREE, HELD)) {
+				held[found++] = seat;
+			}
+			seat = seat + 1 == length ? 0 : seat + 1;
+		}
+		cursor.set(seat);
+		return held;
+	}
+
+	void sell(int[] held) {
+		for (int seat : held) {
+			states.set(seat, SOLD);
+		}
+	}
+
+	void release(int[] held) {
+		for (int seat : held) {
+			states.set(seat, FREE);
+		}
+		available.addAndGet(held.length);
+	}
+
+}
@@ -0,0 +1,163 @@
+package business.ticket;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.seat.SeatInventory;
+import business.seat.SeatInventoryCatalog;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Sells the tickets of the reservations of the installations.
+ * <p>
+ * The seats of a reservation are those of the event type of its
+ * installation, numbered from 0, and the seats sold are kept in its
+ * {@link SeatInventory} (table SEATINVENTORY), which is created when its
+ * sale is first opened. The TICKET, SEAT and PLACE tables of the original
+ * DDL script are not used.
+ * <p>
+ * Once the sale of a reservation is opened its seats are allocated in
+ * memory, which is authoritative for holds in flight: buyers hold seats,
+ * and either confirm them before the hold expires or lose them. Confirmed
+ * sales are written to the database in batches by a {@link TicketWriter}.
+ * The engine must be the only one to sell the seats of a reservation.
+ */
+public class TicketSalesEngine {
+
+	private static final int WHEEL_SLOTS = 512;
+	private static final long WHEEL_TICK_MILLIS = 100;
+
+	private final EntityManagerFactory emf;
+	private final long holdMillis;
+	private final ConcurrentMap<Integer, SeatAllocator> allocators = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Long, Hold> holds = new ConcurrentHashMap<>();
+	private final AtomicLong holdIds = new AtomicLong();
+	private final HoldTimerWheel timerWheel;
+	private final TicketWriter writer;
+	private volatile boolean stopped;
+
+	public TicketSalesEngine(EntityManagerFactory emf, long holdMillis, int batchSize, long maxBatchDelayMillis) {
+		this.emf = emf;
+		this.holdMillis = holdMillis;
+		this.timerWheel = new HoldTimerWheel(WHEEL_SLOTS, WHEEL_TICK_MILLIS, this::expire);
+		this.writer = new TicketWriter(emf, batchSize, maxBatchDelayMillis);
+	}
+
+	/**
+	 * Loads the seats of a reservation, and those already sold, so that its
+	 * tickets can be sold.
+	 */
+	public void openSale(int reservaId) throws ApplicationException {
+		checkRunning();
+		if(allocators.containsKey(reservaId)) {
+			return;
+		}
+		EntityManager em = emf.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			ReservaDeInstalacao reserva = em.find(ReservaDeInstalacao.class, reservaId);
+			if(reserva == null) {
+				throw new ApplicationException("Reservation " + reservaId + " does not exist");
+			}
+			SeatInventory inventory = new SeatInventoryCatalog(em).getOrAddSeatInventory(reserva);
+			em.getTransaction().commit();
+			allocators.putIfAbsent(reservaId, new SeatAllocator(reservaId, inventory.getCapacity(),
+					inventory.getTaken()));
+		} catch (ApplicationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ApplicationException("Not possible to open the sale of reservation " + reservaId, e);
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
+		}
+	}
+
+	public Hold hold(int reservaId, int n) throws ApplicationException {
+		checkRunning();
+		SeatAllocator allocator = allocators.get(reservaId);
+		if(allocator == null) {
+			throw new ApplicationException("Sale of reservation " + reservaId + " is not open");
+		}
+		if(n < 1) {
+			throw new ApplicationException("At least one seat must be bought");
+		}
+		int[] seats = allocator.hold(n);
+		if(seats == null) {
+			throw new ApplicationException("Not enough seats available for reservation " + reservaId);
+		}
+		Hold hold = new Hold(holdIds.incrementAndGet(), allocator, seats, System.currentTimeMillis() + holdMillis);
+		holds.put(hold.getId(), hold);
+		timerWheel.schedule(hold);
+		return hold;
+	}
+
+	/**
+	 * @return the numbers of the seats sold
+	 */
+	public int[] confirm(long holdId) throws ApplicationException {
+		checkRunning();
+		Hold hold = holds.remove(holdId);
+		if(hold == null || !hold.confirm()) {
+			throw new ApplicationException("Hold " + holdId + " does not exist or has expired");
+		}
+		int[] seats = hold.getSeats();
+		writer.write(hold.getReservaId(), seats);
+		return seats;
+	}
+
+	public void cancel(long holdId) {
+		Hold hold = holds.remove(holdId);
+		if(hold != null) {
+			hold.expire();
+		}
+	}
+
+	public int getAvailable(int reservaId) throws ApplicationException {
+		SeatAllocator allocator = allocators.get(reservaId);
+		if(allocator == null) {
+			throw new ApplicationException("Sale of reservation " + reservaId + " is not open");
+		}
+		return allocator.getAvailable();
+	}
+
+	/**
+	 * @return the number of batches of sold tickets that failed to be
+	 * written to the database, and were written again
+	 */
+	public long getFailedWrites() {
+		return writer.getFailedBatches();
+	}
+
+	private void checkRunning() throws ApplicationException {
+		if(stopped) {
+			throw new ApplicationException("Ticket sales are stopped");
+		}
+	}
+
+	private void expire(Hold hold) {
+		if(hold.expire()) {
+			holds.remove(hold.getId());
+		}
+	}
+
+	/**
+	 * Rejects any further sale, stops expiring holds and writes the pending
+	 * sales.
+	 *
+	 * @throws ApplicationException if some sales could not be written
+	 */
+	public void stop() throws InterruptedException, ApplicationException {
+		stopped = true;
+		timerWheel.stop();
+		writer.stop();
+	}
+
+}
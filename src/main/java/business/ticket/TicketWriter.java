@@ -0,0 +1,155 @@
+package business.ticket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import business.reservainstalacao.ReservaDeInstalacao;
+import business.seat.SeatInventory;
+import business.seat.SeatInventoryCatalog;
+import facade.exceptions.ApplicationException;
+
+/**
+ * Writes the confirmed sales to the {@link SeatInventory} of their
+ * reservations in batches.
+ * <p>
+ * A single thread drains the sold tickets and marks their seats taken,
+ * each inventory of a batch updated once, in one transaction per batch.
+ * A batch that fails is
+ * kept and written again in the next round, so confirmed sales are never
+ * dropped while the database is unavailable. The failed batches are
+ * counted, and the tickets that could not be written on shutdown make
+ * {@link #stop()} fail.
+ */
+public class TicketWriter implements Runnable {
+
+	private static final long RETRY_MILLIS = 1000;
+
+	private final EntityManagerFactory emf;
+	private final int batchSize;
+	private final long maxDelayMillis;
+	private final BlockingQueue<int[]> sold = new LinkedBlockingQueue<>();
+	private final Thread thread;
+	private final AtomicLong failedBatches = new AtomicLong();
+	private volatile boolean running = true;
+	private volatile RuntimeException lastFailure;
+	private volatile int unwritten;
+
+	public TicketWriter(EntityManagerFactory emf, int batchSize, long maxDelayMillis) {
+		this.emf = emf;
+		this.batchSize = batchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.thread = new Thread(this, "ticket-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	synchronized void write(int reservaId, int[] seats) throws ApplicationException {
+		if(!running) {
+			throw new ApplicationException("Ticket writer is stopped");
+		}
+		for (int seat : seats) {
+			sold.add(new int[] {reservaId, seat});
+		}
+	}
+
+	@Override
+	public void run() {
+		List<int[]> batch = new ArrayList<>(batchSize);
+		while (running || !sold.isEmpty() || !batch.isEmpty()) {
+			try {
+				if(batch.isEmpty()) {
+					int[] first = sold.poll(maxDelayMillis, TimeUnit.MILLISECONDS);
+					if(first == null) {
+						continue;
+					}
+					batch.add(first);
+				}
+				sold.drainTo(batch, batchSize - batch.size());
+				insert(batch);
+				batch.clear();
+			} catch (RuntimeException e) {
+				failedBatches.incrementAndGet();
+				lastFailure = e;
+				if(!running) {
+					unwritten = batch.size() + sold.size();
+					return;
+				}
+				pause();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+	}
+
+	private void insert(List<int[]> batch) {
+		Map<Integer, List<Integer>> seats = new LinkedHashMap<>();
+		for (int[] ticket : batch) {
+			seats.computeIfAbsent(ticket[0], r -> new ArrayList<>()).add(ticket[1]);
+		}
+		EntityManager em = emf.createEntityManager();
+		SeatInventoryCatalog catalog = new SeatInventoryCatalog(em);
+		try {
+			em.getTransaction().begin();
+			for (Map.Entry<Integer, List<Integer>> e : seats.entrySet()) {
+				ReservaDeInstalacao reserva = em.getReference(ReservaDeInstalacao.class, e.getKey());
+				int[] taken = new int[e.getValue().size()];
+				for (int i = 0; i < taken.length; i++) {
+					taken[i] = e.getValue().get(i);
+				}
+				catalog.getSeatInventory(reserva).take(taken);
+			}
+			em.getTransaction().commit();
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
+		}
+	}
+
+	private void pause() {
+		try {
+			Thread.sleep(RETRY_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the number of batches that failed to be written, each one
+	 * being written again
+	 */
+	public long getFailedBatches() {
+		return failedBatches.get();
+	}
+
+	public RuntimeException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Writes the pending tickets and stops the writer.
+	 *
+	 * @throws ApplicationException if some tickets could not be written
+	 */
+	public void stop() throws InterruptedException, ApplicationException {
+		synchronized (this) {
+			running = false;
+		}
+		thread.join();
+		if(unwritten > 0) {
+			throw new ApplicationException("Not possible to write " + unwritten + " confirmed tickets", lastFailure);
+		}
+	}
+
+}
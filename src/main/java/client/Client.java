@@ -6,13 +6,20 @@ import facade.startup.EventSys;
 
 public class Client {
 
+	// resets and seeds the database before starting, see InitializeDatabase
+	public static final String SEED_PROPERTY = "eventsys.seed";
+
 	public static void main(String[] args) {
 
 		EventSys app = new EventSys();
 		try {
+			// seeding wipes the database, so it is only done on request and
+			// before the application has read anything from it
+			if(Boolean.getBoolean(SEED_PROPERTY)) {
+				InitializeDatabase.dropTables(); // DROP
+				InitializeDatabase.init(); // INIT
+			}
 			app.run();
-			InitializeDatabase.dropTables(); // DROP
-			InitializeDatabase.init(); // INIT
 			
 		}catch (Exception e) {
 			e.printStackTrace();
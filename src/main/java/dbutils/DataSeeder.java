@@ -0,0 +1,196 @@
+package dbutils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import business.SeatType;
+
+/**
+ * Generates synthetic event types, companies, installations, events and
+ * reservations to CSV files and loads them with Derby's bulk import, so
+ * that large datasets are created without going through JPA.
+ * <p>
+ * The ids are taken from the JPA id sequence, which is moved past them, so
+ * that entities created afterwards by the application do not collide with
+ * the seeded ones.
+ * <p>
+ * The import runs at about 25-30k rows/s on a single core. Derby already
+ * loads an empty table in bulk, building its indexes with one sort each,
+ * and that work, not the CSV files, takes the time: dropping the secondary
+ * indexes and foreign keys during the load only moves the same sorts to
+ * their re-creation. A rate of 100k rows/s is not a goal of this seeder.
+ */
+public class DataSeeder {
+
+	private static final String SEQUENCE_NAME = "SEQ_GEN";
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	private static final long SESSION = 3 * 60 * 60 * 1000L;
+	private static final long EPOCH = 1735689600000L; // 2025-01-01
+
+	private final int eventTypes;
+	private final int empresas;
+	private final int instalacoes;
+	private final int events;
+	private final int datesPerEvent;
+	private final int reservasPerInstalacao;
+	private final Random random;
+
+	public DataSeeder(int eventTypes, int empresas, int instalacoes, int events, int datesPerEvent,
+			int reservasPerInstalacao, long seed) {
+		this.eventTypes = eventTypes;
+		this.empresas = empresas;
+		this.instalacoes = instalacoes;
+		this.events = events;
+		this.datesPerEvent = datesPerEvent;
+		this.reservasPerInstalacao = reservasPerInstalacao;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Writes the CSV files to the given directory and imports them.
+	 *
+	 * @return the number of rows loaded
+	 */
+	public long seed(Connection connection, File directory) throws IOException, SQLException {
+		Files.createDirectories(directory.toPath());
+		long firstId = nextId(connection);
+		long id = firstId;
+
+		SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd");
+		timestamp.setTimeZone(TimeZone.getTimeZone("UTC"));
+		date.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		long firstType = id;
+		try (BufferedWriter w = writer(directory, "eventtype.csv")) {
+			for (int i = 0; i < eventTypes; i++) {
+				SeatType lugares = i % 2 == 0 ? SeatType.SENTADO : SeatType.EM_PE;
+				line(w, id++, 100 + random.nextInt(50000), "\"Tipo " + i + "\"", lugares);
+			}
+		}
+
+		long firstEmpresa = id;
+		List<long[]> licencas = new ArrayList<>(empresas);
+		try (BufferedWriter w = writer(directory, "empresa.csv");
+				BufferedWriter allowed = writer(directory, "events_allowed.csv")) {
+			for (int i = 0; i < empresas; i++) {
+				long empresa = id++;
+				line(w, empresa);
+				List<Long> tipos = new ArrayList<>();
+				for (int t = 0; t < eventTypes; t++) {
+					if(random.nextBoolean() || (t == eventTypes - 1 && tipos.isEmpty())) {
+						tipos.add(firstType + t);
+						line(allowed, empresa, firstType + t);
+					}
+				}
+				long[] aux = new long[tipos.size()];
+				for (int t = 0; t < aux.length; t++) {
+					aux[t] = tipos.get(t);
+				}
+				licencas.add(aux);
+			}
+		}
+
+		try (BufferedWriter w = writer(directory, "instalacao.csv");
+				BufferedWriter r = writer(directory, "reservadeinstalacao.csv")) {
+			for (int i = 0; i < instalacoes; i++) {
+				long instalacao = id++;
+				line(w, instalacao, "\"Instalacao " + i + "\"", 1, firstType + random.nextInt(eventTypes));
+				long day = EPOCH + random.nextInt(30) * DAY;
+				for (int j = 0; j < reservasPerInstalacao; j++) {
+					long fim = day + random.nextInt(3) * DAY;
+					line(r, id++, instalacao, date.format(day), date.format(fim));
+					day = fim + (1 + random.nextInt(5)) * DAY;
+				}
+			}
+		}
+
+		try (BufferedWriter w = writer(directory, "event.csv");
+				BufferedWriter d = writer(directory, "dates.csv")) {
+			for (int i = 0; i < events; i++) {
+				long event = id++;
+				int e = random.nextInt(empresas);
+				long[] tipos = licencas.get(e);
+				line(w, event, "\"Evento " + event + "\"", firstEmpresa + e, tipos[random.nextInt(tipos.length)]);
+				long start = EPOCH + random.nextInt(3 * 365) * DAY + 20 * 60 * 60 * 1000L;
+				for (int j = 0; j < datesPerEvent; j++) {
+					line(d, event, timestamp.format(start), timestamp.format(start + SESSION));
+					start += DAY;
+				}
+			}
+		}
+
+		long rows = 0;
+		rows += importData(connection, "EVENTTYPE", "ID,MAX_WATCH,NAME,TIPODELUGARES", directory, "eventtype.csv");
+		rows += importData(connection, "EMPRESA", "ID", directory, "empresa.csv");
+		rows += importData(connection, "EVENTS_ALLOWED", "EMPRESA_ID,TIPOS_DE_EVENTOS_ID", directory, "events_allowed.csv");
+		rows += importData(connection, "INSTALACAO", "ID,NOME,VERSION,EVENTTYPE_ID", directory, "instalacao.csv");
+		rows += importData(connection, "RESERVADEINSTALACAO", "ID,INSTALACAO_ID,INICIO,FIM", directory, "reservadeinstalacao.csv");
+		rows += importData(connection, "EVENT", "ID,NAME,EMPRESA_ID,EVENTTYPE_ID", directory, "event.csv");
+		rows += importData(connection, "DATES", "ID,START_DATE,END_DATE", directory, "dates.csv");
+		moveSequence(connection, id - 1);
+		return rows;
+	}
+
+	private BufferedWriter writer(File directory, String name) throws IOException {
+		return Files.newBufferedWriter(new File(directory, name).toPath(), StandardCharsets.UTF_8);
+	}
+
+	private void line(BufferedWriter w, Object... fields) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if(i > 0) {
+				w.write(',');
+			}
+			w.write(String.valueOf(fields[i]));
+		}
+		w.newLine();
+	}
+
+	private long importData(Connection connection, String table, String columns, File directory, String file)
+			throws SQLException {
+		try (CallableStatement statement = connection.prepareCall(
+				"CALL SYSCS_UTIL.SYSCS_IMPORT_DATA(NULL, ?, ?, NULL, ?, ',', '\"', 'UTF-8', 0)")) {
+			statement.setString(1, table);
+			statement.setString(2, columns);
+			statement.setString(3, new File(directory, file).getAbsolutePath());
+			statement.execute();
+		}
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private long nextId(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery(
+						"SELECT SEQ_COUNT FROM SEQUENCE WHERE SEQ_NAME = '" + SEQUENCE_NAME + "'")) {
+			return rs.next() ? rs.getLong(1) + 1 : 1;
+		}
+	}
+
+	private void moveSequence(Connection connection, long lastId) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			if(statement.executeUpdate("UPDATE SEQUENCE SET SEQ_COUNT = " + lastId +
+					" WHERE SEQ_NAME = '" + SEQUENCE_NAME + "'") == 0) {
+				statement.executeUpdate("INSERT INTO SEQUENCE (SEQ_NAME, SEQ_COUNT) VALUES ('" +
+						SEQUENCE_NAME + "', " + lastId + ")");
+			}
+		}
+	}
+
+}
@@ -1,18 +1,76 @@
 package dbutils;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
 
+import business.journal.ChangeJournal;
+import facade.startup.EventSys;
+
+/**
+ * Resets and seeds the database of the application.
+ * <p>
+ * The size of the generated dataset is read from the system properties
+ * {@code seed.eventtypes}, {@code seed.empresas}, {@code seed.instalacoes},
+ * {@code seed.events}, {@code seed.datesPerEvent}, {@code seed.reservas}
+ * (per installation) and {@code seed.random}.
+ * <p>
+ * Both operations change the database under a running application, so
+ * they must be run before it starts ({@code Client} does so only
+ * when the {@code eventsys.seed} system property is set). Both drop the
+ * checkpoint of the journal of the application, which no longer describes
+ * the database.
+ */
 public class InitializeDatabase {
 	
+	public static final String SEED_DIRECTORY = "data/seed";
+	
+	// children before parents, so that no foreign key is violated
+	private static final String[] TABLES = { "DATES", "TICKET", "EVENT", "SEATINVENTORY", "SEAT", "RESERVADEINSTALACAO",
+			"INSTALACAO", "EVENTS_ALLOWED", "EMPRESA", "EVENTTYPE" };
+	
+	// SQLState of Derby for a table that does not exist
+	private static final String NO_TABLE = "42X05";
+	
 	private InitializeDatabase(){}
 
 
-	public static void init() {
-		
+	public static void init() throws IOException, SQLException {
+		ChangeJournal.dropCheckpoint(EventSys.getJournalDirectory());
+		DataSeeder seeder = new DataSeeder(
+				Integer.getInteger("seed.eventtypes", 10),
+				Integer.getInteger("seed.empresas", 100),
+				Integer.getInteger("seed.instalacoes", 50),
+				Integer.getInteger("seed.events", 1000),
+				Integer.getInteger("seed.datesPerEvent", 3),
+				Integer.getInteger("seed.reservas", 20),
+				Long.getLong("seed.random", 42L));
+		long start = System.currentTimeMillis();
+		long rows;
+		try (Connection connection = DriverManager.getConnection(EventSys.DB_CONNECTION_STRING)) {
+			rows = seeder.seed(connection, new File(SEED_DIRECTORY));
+		}
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		System.out.println("Seeded " + rows + " rows in " + elapsed + " ms (" + rows * 1000 / elapsed + " rows/s)");
 	}
 
 
-	public static void dropTables() {
-		// TODO Auto-generated method stub
-		
+	public static void dropTables() throws IOException, SQLException {
+		ChangeJournal.dropCheckpoint(EventSys.getJournalDirectory());
+		try (Connection connection = DriverManager.getConnection(EventSys.DB_CONNECTION_STRING);
+				Statement statement = connection.createStatement()) {
+			for (String table : TABLES) {
+				try {
+					statement.executeUpdate("DELETE FROM " + table);
+				} catch (SQLException e) {
+					if(!NO_TABLE.equals(e.getSQLState())) {
+						throw e;
+					}
+				}
+			}
+		}
 	}
 }
@@ -6,9 +6,12 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 public class RunSQLScript {
 
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(1);
 	
 	/**
 	 * An utility class should not have public constructors 
@@ -30,4 +33,70 @@ public class RunSQLScript {
         }
     }
 
+
+    /**
+     * Runs a script in bulk: statements may span several lines, are sent
+     * in JDBC batches of the given size, and each batch is committed in its
+     * own transaction. When a batch fails it is rolled back, and the
+     * batches before it stay committed.
+     *
+     * @param quiet when false, the throughput is reported every second
+     * @return the number of statements executed
+     */
+    public static long runScriptBulk(Connection connection, String scriptFilename, int batchSize, boolean quiet)
+    		throws IOException, SQLException {
+    	boolean semicolons;
+    	try (BufferedReader br = new BufferedReader(new FileReader(scriptFilename))) {
+    		semicolons = SQLStatementSplitter.hasTerminators(br);
+    	}
+    	boolean autoCommit = connection.getAutoCommit();
+    	connection.setAutoCommit(false);
+    	long start = System.nanoTime();
+    	long lastReport = start;
+    	long count = 0;
+    	try (BufferedReader br = new BufferedReader(new FileReader(scriptFilename));
+    			Statement statement = connection.createStatement()) {
+    		SQLStatementSplitter splitter = new SQLStatementSplitter(br, semicolons);
+    		String command;
+    		int batched = 0;
+    		while ((command = splitter.next()) != null) {
+    			statement.addBatch(command);
+    			count++;
+    			if(++batched == batchSize) {
+    				executeBatch(connection, statement, count - batched + 1);
+    				batched = 0;
+    				long now = System.nanoTime();
+    				if(!quiet && now - lastReport >= PROGRESS_NANOS) {
+    					report(count, now - start);
+    					lastReport = now;
+    				}
+    			}
+    		}
+    		if(batched > 0) {
+    			executeBatch(connection, statement, count - batched + 1);
+    		}
+    	} finally {
+    		connection.setAutoCommit(autoCommit);
+    	}
+    	if(!quiet) {
+    		report(count, System.nanoTime() - start);
+    	}
+    	return count;
+    }
+
+    private static void executeBatch(Connection connection, Statement statement, long first) throws SQLException {
+    	try {
+    		statement.executeBatch();
+    		connection.commit();
+    	} catch (SQLException e) {
+    		connection.rollback();
+    		throw new SQLException("Batch starting at statement " + first + " failed: " + e.getMessage(), e);
+    	}
+    }
+
+    private static void report(long count, long nanos) {
+    	long perSecond = nanos == 0 ? count : count * TimeUnit.SECONDS.toNanos(1) / nanos;
+    	System.out.println(count + " statements, " + perSecond + " statements/s");
+    }
+
 }
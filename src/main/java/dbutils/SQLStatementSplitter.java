@@ -0,0 +1,141 @@
+package dbutils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits an SQL script in statements, reading it one character at a time.
+ * <p>
+ * Statements end with a semicolon outside of quotes and comments and may
+ * span several lines. Scripts without any semicolon, like the ones in
+ * data/scripts, are read with one statement per line. Comments are
+ * dropped.
+ */
+public class SQLStatementSplitter {
+
+	private static final int EOF = -1;
+
+	private final Reader reader;
+	private final boolean semicolonTerminated;
+	private final StringBuilder current = new StringBuilder();
+	private int pushedBack = EOF - 1;
+	private boolean terminatorSeen;
+
+	public SQLStatementSplitter(Reader reader, boolean semicolonTerminated) {
+		this.reader = reader;
+		this.semicolonTerminated = semicolonTerminated;
+	}
+
+	/**
+	 * Reads a whole script and tells whether its statements end with
+	 * semicolons.
+	 */
+	public static boolean hasTerminators(Reader reader) throws IOException {
+		SQLStatementSplitter splitter = new SQLStatementSplitter(reader, true);
+		while (splitter.next() != null) {
+			if(splitter.terminatorSeen) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the next statement, without terminator, or null at the end
+	 * of the script
+	 */
+	public String next() throws IOException {
+		current.setLength(0);
+		int c;
+		while ((c = read()) != EOF) {
+			if(c == '\'' || c == '"') {
+				quoted(c);
+			} else if(c == '-' && peek('-')) {
+				skipLine();
+				if(!semicolonTerminated && hasText()) {
+					return statement();
+				}
+			} else if(c == '/' && peek('*')) {
+				skipBlockComment();
+			} else if(c == ';' && semicolonTerminated) {
+				terminatorSeen = true;
+				if(hasText()) {
+					return statement();
+				}
+			} else if(c == '\n' && !semicolonTerminated) {
+				if(hasText()) {
+					return statement();
+				}
+			} else {
+				current.append((char) c);
+			}
+		}
+		return hasText() ? statement() : null;
+	}
+
+	private void quoted(int quote) throws IOException {
+		current.append((char) quote);
+		int c;
+		while ((c = read()) != EOF) {
+			current.append((char) c);
+			if(c == quote) {
+				// a doubled quote stands for the quote itself
+				if(!peek(quote)) {
+					return;
+				}
+				current.append((char) quote);
+			}
+		}
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		while ((c = read()) != EOF && c != '\n') {
+			// skip the comment
+		}
+	}
+
+	private void skipBlockComment() throws IOException {
+		int c;
+		while ((c = read()) != EOF) {
+			if(c == '*' && peek('/')) {
+				return;
+			}
+		}
+	}
+
+	// consumes the next character when it is the expected one
+	private boolean peek(int expected) throws IOException {
+		int c = read();
+		if(c == expected) {
+			return true;
+		}
+		pushedBack = c;
+		return false;
+	}
+
+	private int read() throws IOException {
+		if(pushedBack != EOF - 1) {
+			int c = pushedBack;
+			pushedBack = EOF - 1;
+			return c;
+		}
+		return reader.read();
+	}
+
+	private boolean hasText() {
+		for (int i = 0; i < current.length(); i++) {
+			if(!Character.isWhitespace(current.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String statement() {
+		String s = current.toString().trim();
+		current.setLength(0);
+		return s;
+	}
+
+}
@@ -0,0 +1,48 @@
+package facade.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class EventRequest {
+
+	private String tipo;
+	private String nome;
+	private int empresa;
+	private List<Date> inicios;
+	private List<Date> fins;
+	
+	public EventRequest(String tipo,String nome,int empresa) {
+		this.tipo = tipo;
+		this.nome = nome;
+		this.empresa = empresa;
+		this.inicios = new ArrayList<>();
+		this.fins = new ArrayList<>();
+	}
+	
+	public void addDate(Date inicio,Date fim) {
+		inicios.add(inicio);
+		fins.add(fim);
+	}
+	
+	public String getTipo() {
+		return tipo;
+	}
+	
+	public String getNome() {
+		return nome;
+	}
+	
+	public int getEmpresa() {
+		return empresa;
+	}
+	
+	public List<Date> getInicios() {
+		return Collections.unmodifiableList(inicios);
+	}
+	
+	public List<Date> getFins() {
+		return Collections.unmodifiableList(fins);
+	}
+}
@@ -12,6 +12,18 @@ public class EventTypeDto {
 		this.lugares = lugares;
 	}
 	
+	public String getName() {
+		return name;
+	}
+	
+	public int getMax_watch() {
+		return max_watch;
+	}
+	
+	public String getLugares() {
+		return lugares;
+	}
+	
 	@Override
 	public String toString() {
 		return "Tipo de evento:"+name+"\nLotacao Maxima:"+max_watch+"\nTipo de lugares:"+lugares;
@@ -0,0 +1,33 @@
+package facade.dto;
+
+import java.util.Arrays;
+
+public class HoldDto {
+
+	private long id;
+	private int[] lugares;
+	private long expira;
+	
+	public HoldDto(long id,int[] lugares,long expira) {
+		this.id = id;
+		this.lugares = lugares;
+		this.expira = expira;
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public int[] getLugares() {
+		return lugares.clone();
+	}
+	
+	public long getExpira() {
+		return expira;
+	}
+	
+	@Override
+	public String toString() {
+		return "Reserva:" + id + "\nLugares:" + Arrays.toString(lugares) + "\nExpira:" + new java.util.Date(expira);
+	}
+}
@@ -0,0 +1,31 @@
+package facade.dto;
+
+import java.util.List;
+
+public class ImportReportDto {
+
+	private int imported;
+	private List<String> failures;
+	
+	public ImportReportDto(int imported,List<String> failures) {
+		this.imported = imported;
+		this.failures = failures;
+	}
+	
+	public int getImported() {
+		return imported;
+	}
+	
+	public List<String> getFailures() {
+		return failures;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Eventos importados:" + imported + "\nFalhas:" + failures.size());
+		for (String f : failures) {
+			sb.append("\n").append(f);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,37 @@
+package facade.dto;
+
+public class VenueDto {
+
+	private int id;
+	private String nome;
+	private int capacidade;
+	private int folga;
+	
+	public VenueDto(int id,String nome,int capacidade,int folga) {
+		this.id = id;
+		this.nome = nome;
+		this.capacidade = capacidade;
+		this.folga = folga;
+	}
+	
+	public int getId() {
+		return id;
+	}
+	
+	public String getNome() {
+		return nome;
+	}
+	
+	public int getCapacidade() {
+		return capacidade;
+	}
+	
+	public int getFolga() {
+		return folga;
+	}
+	
+	@Override
+	public String toString() {
+		return "Instalacao:"+nome+" ("+id+")\nCapacidade:"+capacidade+"\nFolga:"+folga;
+	}
+}
@@ -0,0 +1,121 @@
+package facade.services;
+
+import java.sql.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import facade.dto.EventRequest;
+import facade.dto.EventTypeDto;
+import facade.exceptions.ApplicationException;
+
+/**
+ * The operations of an {@link EventService}, run on a bounded executor.
+ * <p>
+ * The futures fail with the {@link ApplicationException} of the operation.
+ * When the executor is saturated the operation is not queued: the future
+ * fails at once, so the caller can shed load or retry later.
+ * <p>
+ * The step by step operations share the session of the underlying
+ * service, so they are queued: each one is handed to the executor once
+ * the previous one is done, in the order they were called, and no thread
+ * is blocked waiting for its turn.
+ */
+public class AsyncEventService {
+
+	private final EventService service;
+	private final Executor executor;
+	// the last step by step operation called
+	private final AtomicReference<CompletableFuture<?>> session =
+			new AtomicReference<>(CompletableFuture.completedFuture(null));
+
+	public AsyncEventService(EventService service, Executor executor) {
+		this.service = service;
+		this.executor = executor;
+	}
+
+	public CompletableFuture<Iterable<EventTypeDto>> tryCreateEvent() {
+		return submit(service::tryCreateEvent);
+	}
+
+	public CompletableFuture<Void> createEvent(EventRequest request) {
+		return submit(() -> {
+			service.createEvent(request);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> setTipoDeEvento(String tipo) {
+		return submitInSession(() -> {
+			service.setTipoDeEvento(tipo);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> setNome(String nome) {
+		return submitInSession(() -> {
+			service.setNome(nome);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> setEmpresa(int empresa) {
+		return submitInSession(() -> {
+			service.setEmpresa(empresa);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> addDate(Date inicio, Date fim) {
+		return submitInSession(() -> {
+			service.addDate(inicio, fim);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> createEvent() {
+		return submitInSession(() -> {
+			service.createEvent();
+			return null;
+		});
+	}
+
+	private <T> CompletableFuture<T> submitInSession(Operation<T> operation) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		CompletableFuture<?> previous = session.getAndSet(result);
+		// runs whether the previous operation succeeded or not
+		previous.whenComplete((r, e) -> submit(operation).whenComplete((value, error) -> {
+			if(error == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(error);
+			}
+		}));
+		return result;
+	}
+
+	private <T> CompletableFuture<T> submit(Operation<T> operation) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					result.complete(operation.run());
+				} catch (ApplicationException e) {
+					result.completeExceptionally(e);
+				} catch (RuntimeException e) {
+					result.completeExceptionally(new ApplicationException("Unexpected error", e));
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(new ApplicationException("Too many requests, try again later", e));
+		}
+		return result;
+	}
+
+	@FunctionalInterface
+	private interface Operation<T> {
+		T run() throws ApplicationException;
+	}
+
+}
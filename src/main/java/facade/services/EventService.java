@@ -3,46 +3,94 @@ package facade.services;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import business.eventtype.EventType;
+import business.event.EventTimeFrame;
+import business.eventtype.EventTypeSummary;
 import business.handlers.NewEventHandler;
+import business.handlers.NewEventSession;
+import facade.dto.EventRequest;
 import facade.dto.EventTypeDto;
 import facade.exceptions.ApplicationException;
 
+/**
+ * The event services offered to one client.
+ * <p>
+ * Each instance keeps the event being created step by step in its own
+ * session, so every client (thread) must use its own instance; the
+ * underlying handler is shared.
+ */
 public class EventService {
 
 	private NewEventHandler newEventhandler;
+	private NewEventSession session;
 	public EventService(NewEventHandler newEventhandler) {
 		this.newEventhandler = newEventhandler;
+		this.session = newEventhandler.newSession();
 	}
 	
 	public void createEvent() throws ApplicationException {
-		newEventhandler.createEvent();
+		newEventhandler.createEvent(session);
+	}
+	
+	public void createEvent(EventRequest request) throws ApplicationException {
+		newEventhandler.createEvent(request.getTipo(), request.getNome(), request.getEmpresa(), timeFrames(request));
+	}
+	
+	/**
+	 * Checks the event now and writes it in the background, together with
+	 * other events, when the application runs in write-behind mode.
+	 * 
+	 * @return a future that completes once the event is committed
+	 */
+	public CompletableFuture<Void> createEventWriteBehind(EventRequest request) throws ApplicationException {
+		return newEventhandler.createEventWriteBehind(request.getTipo(), request.getNome(), request.getEmpresa(),
+				timeFrames(request));
+	}
+	
+	private List<EventTimeFrame> timeFrames(EventRequest request) throws ApplicationException {
+		List<java.util.Date> inicios = request.getInicios();
+		List<java.util.Date> fins = request.getFins();
+		if(inicios == null || fins == null) {
+			throw new ApplicationException("No dates defined");
+		}
+		if(inicios.size() != fins.size()) {
+			throw new ApplicationException("Not possible to add new dates: " + inicios.size() + " start dates and " +
+					fins.size() + " end dates");
+		}
+		List<EventTimeFrame> datas = new ArrayList<>(inicios.size());
+		for (int i = 0; i < inicios.size(); i++) {
+			if(inicios.get(i) == null || fins.get(i) == null) {
+				throw new ApplicationException("Not possible to add new dates: date " + i + " is missing");
+			}
+			datas.add(new EventTimeFrame(inicios.get(i), fins.get(i)));
+		}
+		return datas;
 	}
 	
 	public Iterable<EventTypeDto> tryCreateEvent() throws ApplicationException {
-		ArrayList<EventTypeDto> aux = new ArrayList<>();
-		Iterable<EventType> evts = newEventhandler.tryCreateEvent();
-		for (EventType et : evts) {
-			aux.add(new EventTypeDto(et.getTipo(), et.getMax_watch(), et.getTipoDeLugares().toString()));			
+		List<EventTypeDto> result = new ArrayList<>();
+		for (EventTypeSummary evt : newEventhandler.tryCreateEvent()) {
+			result.add(new EventTypeDto(evt.getName(), evt.getMaxWatch(), evt.getTipoDeLugares().toString()));
 		}
-		return aux;
+		return result;
 	}
 	
 	public void setTipoDeEvento(String tipo) throws ApplicationException {
-		newEventhandler.setTipo(tipo);
+		newEventhandler.setTipo(session, tipo);
 	}
 	
 	public void setNome(String nome) throws ApplicationException {
-		newEventhandler.setNome(nome);
+		newEventhandler.setNome(session, nome);
 	}
 	
 	public void setEmpresa(int empresa) throws ApplicationException {
-		newEventhandler.setEmpresa(empresa);
+		newEventhandler.setEmpresa(session, empresa);
 	}
 	
 	public void addDate(Date inicio,Date fim) throws ApplicationException {
-		newEventhandler.addDate(inicio, fim);
+		newEventhandler.addDate(session, inicio, fim);
 	}
 	
 	
@@ -0,0 +1,37 @@
+package facade.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import business.handlers.ImportEventsHandler;
+import business.handlers.ImportResult;
+import facade.dto.ImportReportDto;
+import facade.exceptions.ApplicationException;
+
+public class ImportService {
+
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+
+	private ImportEventsHandler importEventsHandler;
+
+	public ImportService(ImportEventsHandler importEventsHandler) {
+		this.importEventsHandler = importEventsHandler;
+	}
+	
+	public ImportReportDto importEvents(String filename) throws ApplicationException {
+		return importEvents(filename, DEFAULT_CHUNK_SIZE);
+	}
+	
+	public ImportReportDto importEvents(String filename, int chunkSize) throws ApplicationException {
+		try (BufferedReader br = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+			ImportResult result = importEventsHandler.importEvents(br, chunkSize);
+			return new ImportReportDto(result.getImported(), result.getFailures());
+		} catch (IOException e) {
+			throw new ApplicationException("Not possible to read " + filename, e);
+		}
+	}
+	
+}
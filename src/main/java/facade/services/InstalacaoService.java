@@ -0,0 +1,78 @@
+package facade.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import business.event.EventTimeFrame;
+import business.handlers.ReservaInstalacaoHandler;
+import business.handlers.VenueRecommendationHandler;
+import business.instalacao.VenueMatch;
+import facade.dto.VenueDto;
+import facade.exceptions.ApplicationException;
+
+public class InstalacaoService {
+
+	private ReservaInstalacaoHandler reservaHandler;
+	private VenueRecommendationHandler recommendationHandler;
+	
+	public InstalacaoService(ReservaInstalacaoHandler reservaHandler) {
+		this(reservaHandler, null);
+	}
+	
+	public InstalacaoService(ReservaInstalacaoHandler reservaHandler, VenueRecommendationHandler recommendationHandler) {
+		this.reservaHandler = reservaHandler;
+		this.recommendationHandler = recommendationHandler;
+	}
+	
+	public int reservar(int instalacao,Date inicio,Date fim) throws ApplicationException {
+		return reservaHandler.reservar(instalacao, inicio, fim).getId();
+	}
+	
+	/**
+	 * @return the ids of the installations free from {@code inicio} to
+	 * {@code fim}, both days included
+	 */
+	public List<Integer> livres(Date inicio,Date fim) throws ApplicationException {
+		return reservaHandler.findFree(inicio, fim);
+	}
+	
+	/**
+	 * Rebuilds the occupancy map of the installations from the database,
+	 * for instance after its file was lost or the database was restored.
+	 * 
+	 * @return the number of reservations read
+	 */
+	public int reconstruirOcupacao() throws ApplicationException {
+		return reservaHandler.rebuildOccupancy();
+	}
+	
+	/**
+	 * @return at most {@code max} installations for an event of the given
+	 * type with the given sessions, the closest fit to its capacity first
+	 */
+	public List<VenueDto> recomendar(String tipo,List<Date> inicios,List<Date> fins,int max) throws ApplicationException {
+		if(recommendationHandler == null) {
+			throw new ApplicationException("Recommendations not available");
+		}
+		if(inicios.size() != fins.size()) {
+			throw new ApplicationException("Every session needs a start and an end");
+		}
+		if(max < 0) {
+			throw new ApplicationException("The maximum number of installations cannot be negative");
+		}
+		List<EventTimeFrame> datas = new ArrayList<>(inicios.size());
+		for (int i = 0; i < inicios.size(); i++) {
+			if(inicios.get(i) == null || fins.get(i) == null) {
+				throw new ApplicationException("Every session needs a start and an end");
+			}
+			datas.add(new EventTimeFrame(inicios.get(i), fins.get(i)));
+		}
+		List<VenueDto> result = new ArrayList<>();
+		for (VenueMatch m : recommendationHandler.recomendar(tipo, datas, max)) {
+			result.add(new VenueDto(m.getInstalacao().getId(), m.getInstalacao().getNome(), m.getCapacidade(), m.getFolga()));
+		}
+		return result;
+	}
+	
+}
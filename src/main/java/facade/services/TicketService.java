@@ -0,0 +1,37 @@
+package facade.services;
+
+import business.ticket.Hold;
+import business.ticket.TicketSalesEngine;
+import facade.dto.HoldDto;
+import facade.exceptions.ApplicationException;
+
+public class TicketService {
+
+	private TicketSalesEngine engine;
+	
+	public TicketService(TicketSalesEngine engine) {
+		this.engine = engine;
+	}
+	
+	public void openSale(int reserva) throws ApplicationException {
+		engine.openSale(reserva);
+	}
+	
+	public HoldDto hold(int reserva,int lugares) throws ApplicationException {
+		Hold h = engine.hold(reserva, lugares);
+		return new HoldDto(h.getId(), h.getSeats(), h.getDeadline());
+	}
+	
+	public int[] confirm(long hold) throws ApplicationException {
+		return engine.confirm(hold);
+	}
+	
+	public void cancel(long hold) {
+		engine.cancel(hold);
+	}
+	
+	public int getAvailable(int reserva) throws ApplicationException {
+		return engine.getAvailable(reserva);
+	}
+	
+}
@@ -1,37 +1,525 @@
 package facade.startup;
 
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Persistence;
+import javax.persistence.metamodel.EntityType;
 
+import business.cache.ReferenceDataCache;
+import business.empresa.EmpresaCatalog;
+import business.event.EventNameIndex;
+import business.eventtype.EventTypeCatalog;
+import business.handlers.GroupCommitWriter;
+import business.handlers.ImportEventsHandler;
 import business.handlers.NewEventHandler;
+import business.handlers.ReservaInstalacaoHandler;
+import business.handlers.VenueRecommendationHandler;
+import business.instalacao.OccupancyMap;
+import business.journal.ChangeJournal;
+import business.metrics.HandlerMetrics;
+import business.ticket.TicketSalesEngine;
 import facade.exceptions.ApplicationException;
+import facade.services.AsyncEventService;
 import facade.services.EventService;
+import facade.services.ImportService;
+import facade.services.InstalacaoService;
+import facade.services.TicketService;
 
 public class EventSys {
 	  private EventService eventService;
+	  private NewEventHandler newEventHandler;
+	  private ImportService importService;
+	  private InstalacaoService instalacaoService;
+	  private TicketSalesEngine ticketSalesEngine;
+	  private TicketService ticketService;
+	  private HandlerMetrics metrics;
+	  private ScheduledExecutorService metricsDump;
+	  private ScheduledExecutorService snapshotRefresh;
 	  private EntityManagerFactory emf;
+	  private ReferenceDataCache referenceData;
+	  private EventNameIndex nameIndex;
+	  private StartupTimings timings;
+	  private ThreadPoolExecutor serviceExecutor;
+	  private GroupCommitWriter eventWriter;
+	  private OccupancyMap occupancy;
+	  private ChangeJournal journal;
 
 	    public static final String DB_CONNECTION_STRING = "jdbc:derby:data/newderby/db";
 	    
+	    private static final int REFERENCE_CACHE_SIZE = 1000;
+	    private static final long REFERENCE_CACHE_TTL_MINUTES = 60;
+	    private static final String JDBC_BATCH_SIZE = "100";
+	    private static final int BOOKING_ATTEMPTS = 5;
+	    private static final long TICKET_HOLD_MILLIS = 10 * 60 * 1000L;
+	    private static final int TICKET_BATCH_SIZE = 500;
+	    private static final long TICKET_BATCH_DELAY_MILLIS = 200;
+	    public static final String METRICS_MBEAN_NAME = "facade.startup:type=HandlerMetrics";
+	    // seconds between dumps of the metrics to the standard output, none when absent
+	    public static final String METRICS_DUMP_PROPERTY = "eventsys.metrics.dump.seconds";
+	    // concurrent operations and queued operations of the asynchronous services
+	    public static final String ASYNC_THREADS_PROPERTY = "eventsys.async.threads";
+	    public static final String ASYNC_QUEUE_PROPERTY = "eventsys.async.queue";
+	    // events per write-behind transaction, write-behind disabled when absent
+	    public static final String WRITE_BEHIND_PROPERTY = "eventsys.writebehind.batch";
+	    private static final int WRITE_BEHIND_QUEUE = 10000;
+	    private static final long WRITE_BEHIND_DELAY_MILLIS = 20;
+	    // file of the occupancy map of the installations
+	    public static final String OCCUPANCY_FILE_PROPERTY = "eventsys.occupancy.file";
+	    private static final String OCCUPANCY_FILE = "data/occupancy.map";
+	    // four years from today
+	    private static final int OCCUPANCY_DAYS = 4 * 366;
+	    private static final int OCCUPANCY_CAPACITY = 256;
+	    // directory of the journal of the events and reservations
+	    public static final String JOURNAL_DIR_PROPERTY = "eventsys.journal.dir";
+	    private static final String JOURNAL_DIR = "data/journal";
+	    private static final int JOURNAL_SEGMENT_SIZE = 16 * 1024 * 1024;
+	    
 	    public void run() throws ApplicationException {
+	    	timings = new StartupTimings();
 	    	// Connects to the database
 			try {
-				emf = Persistence.createEntityManagerFactory("domain-model-jpa");
-				eventService = new EventService(new NewEventHandler(emf));
+				boot();
+				recover();
+				timings.ready();
+				loadSnapshot();
 				// exceptions thrown by JPA are not checked
 			} catch (Exception e) {
 				throw new ApplicationException("Error connecting database", e);
 			}
 	    }
 
-	    public void stopRun() {
+	    /**
+	     * Starts the application in a background thread. The returned future
+	     * completes, or fails with an {@link ApplicationException}, once the
+	     * services accept requests, the event names and the reservations
+	     * being recovered; the services are not to be used before. The
+	     * reference snapshot is then loaded in the same thread.
+	     * 
+	     * @param warmUp whether to then also load the caches of the reference
+	     * data and the database pages of every entity
+	     */
+	    public CompletableFuture<Void> runAsync(boolean warmUp) {
+	    	timings = new StartupTimings();
+	    	CompletableFuture<Void> ready = new CompletableFuture<>();
+	    	Thread startup = new Thread(() -> {
+	    		try {
+	    			boot();
+	    			recover();
+	    			timings.ready();
+	    		} catch (Exception e) {
+	    			ready.completeExceptionally(new ApplicationException("Error connecting database", e));
+	    			return;
+	    		}
+	    		ready.complete(null);
+	    		try {
+	    			loadSnapshot();
+	    		} catch (RuntimeException e) {
+	    			// the reference data is read from the caches until the next start
+	    		}
+	    		if(warmUp) {
+	    			warmUp();
+	    		}
+	    	}, "eventsys-startup");
+	    	startup.setDaemon(true);
+	    	startup.start();
+	    	return ready;
+	    }
+
+	    private void boot() throws Exception {
+	    	long start = timings.start();
+	    	emf = Persistence.createEntityManagerFactory("domain-model-jpa", persistenceProperties());
+	    	// the persistence unit is deployed and connected by its first entity manager
+	    	EntityManager em = emf.createEntityManager();
+	    	try {
+	    		timings.record("persistence-unit", start);
+	    		start = timings.start();
+	    		compileNamedQueries(em);
+	    		timings.record("named-queries", start);
+	    	} finally {
+	    		em.close();
+	    	}
+	    	start = timings.start();
+	    	openOccupancy();
+	    	timings.record("occupancy-map", start);
+	    	start = timings.start();
+	    	journal = ChangeJournal.open(getJournalDirectory(), JOURNAL_SEGMENT_SIZE);
+	    	timings.record("journal", start);
+	    	start = timings.start();
+	    	nameIndex = new EventNameIndex();
+	    	referenceData = new ReferenceDataCache(REFERENCE_CACHE_SIZE, REFERENCE_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+	    	metrics = new HandlerMetrics();
+	    	metrics.listenTo(emf);
+	    	registerMetrics();
+	    	int writeBehindBatch = Integer.getInteger(WRITE_BEHIND_PROPERTY, 0);
+	    	if(writeBehindBatch > 0) {
+	    		eventWriter = new GroupCommitWriter(emf, nameIndex, journal, WRITE_BEHIND_QUEUE, writeBehindBatch,
+	    				WRITE_BEHIND_DELAY_MILLIS);
+	    	}
+	    	newEventHandler = new NewEventHandler(emf, nameIndex, referenceData, metrics, eventWriter, journal);
+	    	eventService = new EventService(newEventHandler);
+	    	importService = new ImportService(new ImportEventsHandler(emf, nameIndex, referenceData, journal));
+	    	instalacaoService = new InstalacaoService(new ReservaInstalacaoHandler(emf, BOOKING_ATTEMPTS, occupancy, journal),
+	    			new VenueRecommendationHandler(emf, referenceData, ForkJoinPool.commonPool()));
+	    	ticketSalesEngine = new TicketSalesEngine(emf, TICKET_HOLD_MILLIS,
+	    			TICKET_BATCH_SIZE, TICKET_BATCH_DELAY_MILLIS);
+	    	ticketService = new TicketService(ticketSalesEngine);
+	    	serviceExecutor = ServiceExecutors.newBounded("eventsys-service",
+	    			Integer.getInteger(ASYNC_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors() * 4),
+	    			Integer.getInteger(ASYNC_QUEUE_PROPERTY, 1000));
+	    	timings.record("services", start);
+	    }
+
+	    // creates every named query of the entities, so that none is parsed by a request
+	    private void compileNamedQueries(EntityManager em) {
+	    	Map<String, Class<?>> defined = new HashMap<>();
+	    	for (EntityType<?> entity : em.getMetamodel().getEntities()) {
+	    		Class<?> type = entity.getJavaType();
+	    		NamedQueries queries = type.getAnnotation(NamedQueries.class);
+	    		if(queries != null) {
+	    			for (NamedQuery query : queries.value()) {
+	    				compileNamedQuery(em, query, type, defined);
+	    			}
+	    		}
+	    		NamedQuery query = type.getAnnotation(NamedQuery.class);
+	    		if(query != null) {
+	    			compileNamedQuery(em, query, type, defined);
+	    		}
+	    	}
+	    }
+
+	    // a name defined twice silently runs one of the two queries, for instance event type names as event names
+	    private void compileNamedQuery(EntityManager em, NamedQuery query, Class<?> type, Map<String, Class<?>> defined) {
+	    	Class<?> other = defined.put(query.name(), type);
+	    	if(other != null) {
+	    		throw new IllegalStateException("Named query " + query.name() + " is defined by both " +
+	    				other.getSimpleName() + " and " + type.getSimpleName());
+	    	}
+	    	em.createNamedQuery(query.name());
+	    }
+
+	    // the map is kept from a run to the next, and caught up with the database by recover()
+	    private void openOccupancy() throws IOException {
+	    	Date today = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+	    	occupancy = OccupancyMap.open(Paths.get(System.getProperty(OCCUPANCY_FILE_PROPERTY, OCCUPANCY_FILE)),
+	    			today, OCCUPANCY_DAYS, OCCUPANCY_CAPACITY);
+	    	EntityManager em = emf.createEntityManager();
+	    	try {
+	    		occupancy.rollTo(today, em);
+	    	} finally {
+	    		em.close();
+	    	}
+	    }
+
+	    // the snapshot is then read again twice per time to live, so that it does not expire
+	    private void loadSnapshot() {
+	    	long start = timings.start();
+	    	refreshSnapshot();
+	    	timings.record("reference-snapshot", start);
+	    	snapshotRefresh = Executors.newSingleThreadScheduledExecutor(r -> {
+	    		Thread t = new Thread(r, "reference-snapshot");
+	    		t.setDaemon(true);
+	    		return t;
+	    	});
+	    	long period = TimeUnit.MINUTES.toSeconds(REFERENCE_CACHE_TTL_MINUTES) / 2;
+	    	snapshotRefresh.scheduleAtFixedRate(() -> {
+	    		try {
+	    			refreshSnapshot();
+	    		} catch (RuntimeException e) {
+	    			// the previous snapshot is used until it expires
+	    		}
+	    	}, period, period, TimeUnit.SECONDS);
+	    }
+
+	    private void refreshSnapshot() {
+	    	EntityManager em = emf.createEntityManager();
+	    	try {
+	    		referenceData.refreshSnapshot(em);
+	    	} finally {
+	    		em.close();
+	    	}
+	    }
+
+	    /**
+	     * @return the directory of the journal of the events and reservations
+	     */
+	    public static Path getJournalDirectory() {
+	    	return Paths.get(System.getProperty(JOURNAL_DIR_PROPERTY, JOURNAL_DIR));
+	    }
+
+	    /**
+	     * Recovers the index of the event names and the occupancy map. The
+	     * journal is replayed when it matches the database: the names are
+	     * then read from it, and so are the reservations the map missed if
+	     * the map holds at least those of the checkpoint. Otherwise the names
+	     * are read from the database and the journal checkpointed, and the
+	     * map, unless current, is rebuilt.
+	     */
+	    private void recover() throws IOException {
+	    	long start = timings.start();
+	    	ChangeJournal.HighWaterMark database = highWaterMark();
+	    	ChangeJournal.HighWaterMark checkpoint = journal.getCheckpointMark();
+	    	List<String> names = new ArrayList<>();
+	    	List<long[]> reservas = new ArrayList<>();
+	    	boolean replayed = false;
+	    	if(checkpoint != null) {
+	    		try {
+	    			journal.replay(new ChangeJournal.Listener() {
+	    				@Override
+	    				public void nameRecorded(String nome) {
+	    					names.add(nome);
+	    				}
+	    				@Override
+	    				public void eventCreated(int id, String nome) {
+	    					names.add(nome);
+	    				}
+	    				@Override
+	    				public void reservaCreated(int id, int instalacao, long inicio, long fim) {
+	    					reservas.add(new long[] { instalacao, inicio, fim });
+	    				}
+	    			}, database);
+	    			replayed = true;
+	    		} catch (IOException e) {
+	    			// read from the database
+	    		}
+	    	}
+	    	// the records are applied only once they are known to match the database
+	    	if(replayed) {
+	    		nameIndex.warmUp(names);
+	    		timings.record("journal-replay", start);
+	    	}
+	    	start = timings.start();
+	    	// the reservations are never deleted, so a map holding as many as the checkpoint holds all of them
+	    	if(replayed && !occupancy.isCreated() && occupancy.getReservations() >= checkpoint.getReservas()) {
+	    		for (long[] reserva : reservas) {
+	    			occupancy.reserve((int) reserva[0], new Date(reserva[1]), new Date(reserva[2]));
+	    		}
+	    		occupancy.markCurrent(database.getReservas(), database.getLastReserva());
+	    		timings.record("occupancy-replay", start);
+	    	} else {
+	    		EntityManager em = emf.createEntityManager();
+	    		try {
+	    			if(occupancy.isCreated() || !occupancy.isCurrent(em)) {
+	    				occupancy.rebuild(em);
+	    			}
+	    		} finally {
+	    			em.close();
+	    		}
+	    		timings.record("occupancy-rebuild", start);
+	    	}
+	    	if(!replayed) {
+	    		warmNameIndex();
+	    		checkpoint();
+	    	}
+	    }
+
+	    // failures are ignored: the journal is then read up to the previous checkpoint, or not at all
+	    private void checkpoint() {
+	    	if(!nameIndex.isWarm()) {
+	    		return;
+	    	}
+	    	long start = timings.start();
+	    	try {
+	    		occupancy.force();
+	    		// read before the names: an event committed in between is then past the mark, not missing
+	    		ChangeJournal.HighWaterMark mark = highWaterMark();
+	    		journal.checkpoint(nameIndex.getNames(), mark);
+	    		timings.record("journal-checkpoint", start);
+	    	} catch (IOException | RuntimeException e) {
+	    		// the next start reads the database
+	    	}
+	    }
+
+	    private ChangeJournal.HighWaterMark highWaterMark() {
+	    	EntityManager em = emf.createEntityManager();
+	    	try {
+	    		return ChangeJournal.HighWaterMark.of(em);
+	    	} finally {
+	    		em.close();
+	    	}
+	    }
+
+	    private void warmNameIndex() {
+	    	long start = timings.start();
+	    	EntityManager em = emf.createEntityManager();
+	    	try {
+	    		nameIndex.warmUp(em);
+	    	} finally {
+	    		em.close();
+	    	}
+	    	timings.record("event-names", start);
+	    }
+
+	    // failures are ignored: without the warm-up the data is read on demand
+	    private void warmUp() {
+	    	try {
+	    		long start = timings.start();
+	    		EntityManager em = emf.createEntityManager();
+	    		try {
+	    			new EventTypeCatalog(em, referenceData).warmCache();
+	    			new EmpresaCatalog(em, referenceData).warmCache(REFERENCE_CACHE_SIZE);
+	    			timings.record("reference-data", start);
+	    			start = timings.start();
+	    			// counting the rows reads the pages of every table into the Derby page cache
+	    			for (EntityType<?> entity : em.getMetamodel().getEntities()) {
+	    				em.createQuery("SELECT COUNT(x) FROM " + entity.getName() + " x").getSingleResult();
+	    			}
+	    			timings.record("page-cache", start);
+	    		} finally {
+	    			em.close();
+	    		}
+	    	} catch (RuntimeException e) {
+	    		// the application is already running
+	    	}
+	    }
+
+	    private void registerMetrics() throws Exception {
+	    	MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	    	ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+	    	if(server.isRegistered(name)) {
+	    		server.unregisterMBean(name);
+	    	}
+	    	server.registerMBean(metrics, name);
+	    	long period = Long.getLong(METRICS_DUMP_PROPERTY, 0);
+	    	if(period > 0) {
+	    		metricsDump = Executors.newSingleThreadScheduledExecutor(r -> {
+	    			Thread t = new Thread(r, "metrics-dump");
+	    			t.setDaemon(true);
+	    			return t;
+	    		});
+	    		metricsDump.scheduleAtFixedRate(() -> System.out.print(metrics.getReport()), period, period, TimeUnit.SECONDS);
+	    	}
+	    }
+
+	    // groups the inserts of a flush into JDBC statement batches
+	    private Map<String, String> persistenceProperties() {
+	    	Map<String, String> properties = new HashMap<>();
+	    	properties.put("eclipselink.jdbc.batch-writing", "JDBC");
+	    	properties.put("eclipselink.jdbc.batch-writing.size", JDBC_BATCH_SIZE);
+	    	return properties;
+	    }
+
+	    /**
+	     * Stops the application, even when some of the tickets sold could
+	     * not be written to the database.
+	     * 
+	     * @throws ApplicationException once stopped, if some tickets sold were
+	     * not written
+	     */
+	    public void stopRun() throws ApplicationException {
+	    	ApplicationException ticketsNotWritten = null;
+	    	// Writes the tickets sold and the events created and not yet in the database
+	    	try {
+	    		try {
+	    			ticketSalesEngine.stop();
+	    		} catch (ApplicationException e) {
+	    			ticketsNotWritten = e;
+	    		}
+	    		if(eventWriter != null) {
+	    			eventWriter.stop();
+	    		}
+	    	} catch (InterruptedException e) {
+	    		Thread.currentThread().interrupt();
+	    	}
+	    	if(metricsDump != null) {
+	    		metricsDump.shutdownNow();
+	    	}
+	    	if(snapshotRefresh != null) {
+	    		snapshotRefresh.shutdownNow();
+	    	}
+	    	serviceExecutor.shutdown();
+	    	checkpoint();
+	    	try {
+	    		journal.close();
+	    	} catch (IOException e) {
+	    		// the records are written by the operating system
+	    	}
+	    	try {
+	    		occupancy.close();
+	    	} catch (IOException e) {
+	    		// the map can be rebuilt from the database
+	    	}
+	    	try {
+	    		ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(METRICS_MBEAN_NAME));
+	    	} catch (Exception e) {
+	    		// not registered
+	    	}
 	        // Closes the database connection
 	        emf.close();
+	        if(ticketsNotWritten != null) {
+	        	throw ticketsNotWritten;
+	        }
 	    }
 
+	    /**
+	     * @return the event service of this application, whose creation
+	     * session is kept between calls, and so meant for a single client
+	     */
 	    public EventService getEventService() {
 			return eventService;
 		}
 	    
+	    /**
+	     * @return a new event service, with its own creation session, backed
+	     * by the handler shared by all the clients of this application
+	     */
+	    public EventService newEventService() {
+	    	return new EventService(newEventHandler);
+	    }
+	    
+	    /**
+	     * @return a new asynchronous event service, with its own creation
+	     * session, running on the executor shared by all the clients
+	     */
+	    public AsyncEventService newAsyncEventService() {
+	    	return new AsyncEventService(newEventService(), serviceExecutor);
+	    }
+	    
+	    public ImportService getImportService() {
+	    	return importService;
+	    }
+	    
+	    public InstalacaoService getInstalacaoService() {
+	    	return instalacaoService;
+	    }
+	    
+	    public TicketService getTicketService() {
+	    	return ticketService;
+	    }
+	    
+	    public HandlerMetrics getMetrics() {
+	    	return metrics;
+	    }
+	    
+	    public ReferenceDataCache getReferenceData() {
+	    	return referenceData;
+	    }
+	    
+	    public StartupTimings getStartupTimings() {
+	    	return timings;
+	    }
+	    
 }
@@ -0,0 +1,50 @@
+package facade.startup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous services.
+ */
+public class ServiceExecutors {
+
+	private ServiceExecutors() {}
+
+	/**
+	 * Creates an executor of at most {@code threads} concurrent tasks that
+	 * queues at most {@code queueCapacity} others and rejects the rest with
+	 * a {@link java.util.concurrent.RejectedExecutionException}.
+	 * <p>
+	 * The threads are virtual when the runtime supports them (Java 21+),
+	 * platform daemon threads otherwise.
+	 */
+	public static ThreadPoolExecutor newBounded(String name, int threads, int queueCapacity) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		// Thread.ofVirtual().name(name, 0).factory(), looked up as the code targets Java 8
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method named = Class.forName("java.lang.Thread$Builder$OfVirtual").getMethod("name", String.class, long.class);
+			builder = named.invoke(builder, name + "-", 0L);
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			AtomicInteger count = new AtomicInteger();
+			return r -> {
+				Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			};
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package facade.startup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of the startup of {@link EventSys}, in the order
+ * in which they finished.
+ */
+public class StartupTimings {
+
+	private final long begin = System.nanoTime();
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+	private volatile long ready = -1;
+
+	/**
+	 * @return the instant at which a phase starts, to be given to {@link #record}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	public synchronized void record(String phase, long start) {
+		phases.put(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	void ready() {
+		ready = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+	}
+
+	/**
+	 * @return the milliseconds from the start of the application until it
+	 * accepted requests, or -1 while it is starting
+	 */
+	public long getTimeToReady() {
+		return ready;
+	}
+
+	public synchronized Map<String, Long> getPhases() {
+		return new LinkedHashMap<>(phases);
+	}
+
+	public synchronized String getReport() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			sb.append(String.format("%-20s %8d ms%n", phase.getKey(), phase.getValue()));
+		}
+		sb.append(String.format("%-20s %8d ms%n", "ready", ready));
+		return sb.toString();
+	}
+
+}